@@ -0,0 +1,209 @@
+package de.sphrilix.reversi.bench;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * This class holds the JMH benchmarks of both implementations of
+ * {@link Board} on the positions of the {@link Corpus}: human moves (move
+ * check, copy and flipping), copies, scores and machine moves of every
+ * level. Every call works on the next board of the corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardBenchmarks {
+
+    /**
+     * This class provides the boards of a phase with the human next.
+     */
+    @State(Scope.Thread)
+    public static class HumanBoards {
+
+        /**
+         * The name of the implementation.
+         */
+        @Param({Corpus.REVERSI, Corpus.BIT_BOARDS})
+        public String board;
+
+        /**
+         * The phase of the positions.
+         */
+        @Param({"mid", "end"})
+        public String phase;
+
+        /**
+         * The boards.
+         */
+        private List<Board> boards;
+
+        /**
+         * The legal moves on the boards, as index of the board, row and
+         * column.
+         */
+        private List<int[]> moves;
+
+        /**
+         * Index of the next board.
+         */
+        private int nextBoard;
+
+        /**
+         * Index of the next move.
+         */
+        private int nextMove;
+
+        /**
+         * Creates the boards and collects their moves.
+         */
+        @Setup
+        public void setUp() {
+            boards = Corpus.boards(Corpus.factory(board),
+                    Corpus.phaseEmpties(phase), Player.HUMAN);
+            moves = new ArrayList<>();
+            for (int i = 0; i < boards.size(); i++) {
+                for (int row = 1; row <= Board.SIZE; row++) {
+                    for (int col = 1; col <= Board.SIZE; col++) {
+                        if (boards.get(i).move(row, col) != null) {
+                            moves.add(new int[] {i, row, col});
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the next board.
+         *
+         * @return Returns the next board of the corpus.
+         */
+        Board nextBoard() {
+            nextBoard = (nextBoard + 1) % boards.size();
+            return boards.get(nextBoard);
+        }
+
+        /**
+         * Executes the next legal move.
+         *
+         * @return Returns the board after the move.
+         */
+        Board nextMove() {
+            nextMove = (nextMove + 1) % moves.size();
+            int[] move = moves.get(nextMove);
+            return boards.get(move[0]).move(move[1], move[2]);
+        }
+    }
+
+    /**
+     * This class provides the boards of a phase with the machine next.
+     */
+    @State(Scope.Thread)
+    public static class MachineBoards {
+
+        /**
+         * The name of the implementation.
+         */
+        @Param({Corpus.REVERSI, Corpus.BIT_BOARDS})
+        public String board;
+
+        /**
+         * The phase of the positions.
+         */
+        @Param({"mid", "end"})
+        public String phase;
+
+        /**
+         * The level of the machine moves.
+         */
+        @Param({"1", "2", "3", "4"})
+        public int level;
+
+        /**
+         * The boards.
+         */
+        private List<Board> boards;
+
+        /**
+         * Index of the next board.
+         */
+        private int next;
+
+        /**
+         * Creates the boards and sets their level.
+         */
+        @Setup
+        public void setUp() {
+            Supplier<Board> factory = Corpus.factory(board);
+            boards = Corpus.boards(factory, Corpus.phaseEmpties(phase),
+                    Player.MACHINE);
+            for (Board machine : boards) {
+                machine.setLevel(level);
+            }
+        }
+
+        /**
+         * Gets the next board.
+         *
+         * @return Returns the next board of the corpus.
+         */
+        Board next() {
+            next = (next + 1) % boards.size();
+            return boards.get(next);
+        }
+    }
+
+    /**
+     * Executes a human move.
+     *
+     * @param boards The boards.
+     * @return Returns the board after the move.
+     */
+    @Benchmark
+    public Board move(HumanBoards boards) {
+        return boards.nextMove();
+    }
+
+    /**
+     * Copies a board.
+     *
+     * @param boards The boards.
+     * @return Returns the copy.
+     */
+    @Benchmark
+    public Board copy(HumanBoards boards) {
+        return boards.nextBoard().clone();
+    }
+
+    /**
+     * Scores a board.
+     *
+     * @param boards The boards.
+     * @return Returns the score.
+     */
+    @Benchmark
+    public double score(HumanBoards boards) {
+        return Corpus.score(boards.nextBoard());
+    }
+
+    /**
+     * Executes a machine move.
+     *
+     * @param boards The boards.
+     * @return Returns the board after the move.
+     */
+    @Benchmark
+    public Board machineMove(MachineBoards boards) {
+        return boards.next().machineMove();
+    }
+}
@@ -0,0 +1,218 @@
+package de.sphrilix.reversi.bench;
+
+import de.sphrilix.reversi.engine.BitBoardReversi;
+import de.sphrilix.reversi.engine.Position;
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import de.sphrilix.reversi.model.Reversi;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * This class provides the fixed positions the benchmarks run on. They are
+ * reached by games from the start position in which the human plays random
+ * moves of a seeded generator and the machine plays on level 1, so every
+ * implementation of {@link Board} reaches the same positions.
+ */
+public final class Corpus {
+
+    /**
+     * Number of empty slots of the midgame positions.
+     */
+    public static final int MIDGAME_EMPTIES = 36;
+
+    /**
+     * Number of empty slots of the endgame positions.
+     */
+    public static final int ENDGAME_EMPTIES = 12;
+
+    /**
+     * Number of positions of each phase.
+     */
+    public static final int SIZE = 8;
+
+    /**
+     * Name of the {@link Reversi} implementation.
+     */
+    public static final String REVERSI = "Reversi";
+
+    /**
+     * Name of the {@link BitBoardReversi} implementation.
+     */
+    public static final String BIT_BOARDS = "BitBoardReversi";
+
+    /**
+     * Seed of the first game, the following games use the next seeds.
+     */
+    private static final long SEED = 1_000L;
+
+    /**
+     * Utility class, no instances.
+     */
+    private Corpus() {
+    }
+
+    /**
+     * Creates the factory of new games of the given implementation. The bot
+     * of the bitboard implementation does not solve the endgame and has no
+     * transposition table, so both boards run the same search and repeated
+     * searches are comparable.
+     *
+     * @param name The name of the implementation, {@link #REVERSI} or
+     *        {@link #BIT_BOARDS}.
+     * @return Returns the factory of games started by the human.
+     */
+    public static Supplier<Board> factory(String name) {
+        switch (name) {
+            case REVERSI:
+                return () -> new Reversi(Player.HUMAN);
+            case BIT_BOARDS:
+                return () -> {
+                    BitBoardReversi board = new BitBoardReversi(Player.HUMAN);
+                    board.setEndgameEmpties(0);
+
+                    // Without table, otherwise repeated searches would only
+                    // look up.
+                    board.setHashSize(0);
+                    return board;
+                };
+            default:
+                throw new IllegalArgumentException("Unknown board " + name
+                        + "!");
+        }
+    }
+
+    /**
+     * Gets the number of empty slots of the given phase.
+     *
+     * @param phase The phase, {@code mid} or {@code end}.
+     * @return Returns {@link #MIDGAME_EMPTIES} or {@link #ENDGAME_EMPTIES}.
+     */
+    public static int phaseEmpties(String phase) {
+        switch (phase) {
+            case "mid":
+                return MIDGAME_EMPTIES;
+            case "end":
+                return ENDGAME_EMPTIES;
+            default:
+                throw new IllegalArgumentException("Unknown phase " + phase
+                        + "!");
+        }
+    }
+
+    /**
+     * Scores the given board with the score function of its implementation.
+     *
+     * @param board A {@link Reversi} or {@link BitBoardReversi} board.
+     * @return Returns the score of the board.
+     */
+    public static double score(Board board) {
+        if (board instanceof Reversi) {
+            return ((Reversi) board).score();
+        }
+        return ((BitBoardReversi) board).score();
+    }
+
+    /**
+     * Creates the boards of a phase. The games stop at the first position
+     * with at most the given number of empty slots where the given Player
+     * is next, games ending earlier are skipped.
+     *
+     * @param factory The factory of new games, started by the human.
+     * @param empties The maximum number of empty slots.
+     * @param next The Player who is next on the boards.
+     * @return Returns {@link #SIZE} boards.
+     */
+    public static List<Board> boards(Supplier<Board> factory, int empties,
+            Player next) {
+        List<Board> boards = new ArrayList<>();
+        for (long seed = SEED; boards.size() < SIZE; seed++) {
+            Random random = new Random(seed);
+            Board board = factory.get();
+            board.setLevel(1);
+            while (!board.gameOver() && (empties(board) > empties
+                    || board.next() != next)) {
+                board = board.next() == Player.MACHINE ? board.machineMove()
+                        : randomMove(board, random);
+            }
+            if (!board.gameOver()) {
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+
+    /**
+     * Creates the positions of a phase with the machine next, the same as
+     * the ones of {@link #boards}.
+     *
+     * @param factory The factory of new games, started by the human.
+     * @param empties The maximum number of empty slots.
+     * @return Returns {@link #SIZE} positions.
+     */
+    public static List<Position> positions(Supplier<Board> factory,
+            int empties) {
+        List<Position> positions = new ArrayList<>();
+        for (Board board : boards(factory, empties, Player.MACHINE)) {
+            positions.add(toPosition(board));
+        }
+        return positions;
+    }
+
+    /**
+     * Converts the given board to a position.
+     *
+     * @param board The board to be converted.
+     * @return Returns a position with the same tiles and the same Player
+     *         next.
+     */
+    public static Position toPosition(Board board) {
+        long human = 0;
+        long machine = 0;
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Player slot = board.getSlot(row, col);
+                if (slot == Player.HUMAN) {
+                    human |= BitBoards.bit(row, col);
+                } else if (slot == Player.MACHINE) {
+                    machine |= BitBoards.bit(row, col);
+                }
+            }
+        }
+        return new Position(human, machine, board.next());
+    }
+
+    /**
+     * Counts the empty slots of the given board.
+     *
+     * @param board The board.
+     * @return Returns the number of empty slots.
+     */
+    private static int empties(Board board) {
+        return Board.SIZE * Board.SIZE - board.getNumberOfHumanTiles()
+                - board.getNumberOfMachineTiles();
+    }
+
+    /**
+     * Executes a random move of the human.
+     *
+     * @param board The board with the human next.
+     * @param random The generator choosing the move.
+     * @return Returns the board after the move.
+     */
+    private static Board randomMove(Board board, Random random) {
+        List<Board> moves = new ArrayList<>();
+        for (int row = 1; row <= Board.SIZE; row++) {
+            for (int col = 1; col <= Board.SIZE; col++) {
+                Board move = board.move(row, col);
+                if (move != null) {
+                    moves.add(move);
+                }
+            }
+        }
+        return moves.get(random.nextInt(moves.size()));
+    }
+}
@@ -0,0 +1,350 @@
+package de.sphrilix.reversi.bench;
+
+import de.sphrilix.reversi.engine.EndgameSolver;
+import de.sphrilix.reversi.engine.Engine;
+import de.sphrilix.reversi.engine.HeuristicEvaluator;
+import de.sphrilix.reversi.engine.IncrementalEvaluator;
+import de.sphrilix.reversi.engine.PatternEvaluator;
+import de.sphrilix.reversi.engine.Position;
+import de.sphrilix.reversi.engine.SearchStats;
+import de.sphrilix.reversi.model.BitBoards;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * This class holds the JMH benchmarks of the engine on the positions of the
+ * {@link Corpus}: move generation, flipping, make/unmake, the evaluations,
+ * the search of every level and the endgame solver. Every call works on
+ * the next position of the corpus. The searches run in throughput mode and
+ * report their nodes per second as secondary result {@code nodes}. The
+ * search of the engine also reports its cutoffs and the ones caused by the
+ * first move tried; their ratio measures the move ordering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineBenchmarks {
+
+    /**
+     * The heuristic evaluation.
+     */
+    private static final HeuristicEvaluator HEURISTIC =
+            new HeuristicEvaluator();
+
+    /**
+     * The pattern evaluation with its default weights.
+     */
+    private static final PatternEvaluator PATTERNS = new PatternEvaluator();
+
+    /**
+     * The incremental evaluation.
+     */
+    private static final IncrementalEvaluator INCREMENTAL =
+            new IncrementalEvaluator();
+
+    /**
+     * This class provides the positions of a phase with the machine next.
+     */
+    @State(Scope.Thread)
+    public static class Positions {
+
+        /**
+         * The phase of the positions.
+         */
+        @Param({"mid", "end"})
+        public String phase;
+
+        /**
+         * The positions.
+         */
+        private List<Position> positions;
+
+        /**
+         * Copies of the positions for the pattern evaluation, whose indices
+         * would slow down the other moves.
+         */
+        private List<Position> copies;
+
+        /**
+         * Index of the next position.
+         */
+        private int next;
+
+        /**
+         * Creates the positions.
+         */
+        @Setup
+        public void setUp() {
+            positions = Corpus.positions(Corpus.factory(Corpus.BIT_BOARDS),
+                    Corpus.phaseEmpties(phase));
+            copies = new ArrayList<>();
+            for (Position position : positions) {
+                copies.add(new Position(position));
+            }
+        }
+
+        /**
+         * Gets the next position.
+         *
+         * @return Returns the next position of the corpus.
+         */
+        Position next() {
+            next = (next + 1) % positions.size();
+            return positions.get(next);
+        }
+
+        /**
+         * Gets the copy of the next position.
+         *
+         * @return Returns the copy of the next position of the corpus.
+         */
+        Position nextCopy() {
+            next = (next + 1) % copies.size();
+            return copies.get(next);
+        }
+    }
+
+    /**
+     * This class provides an engine searching with the incremental
+     * evaluation, without endgame solver and transposition table, so
+     * repeated searches are comparable.
+     */
+    @State(Scope.Thread)
+    public static class Search {
+
+        /**
+         * The level of the searches.
+         */
+        @Param({"1", "2", "3", "4"})
+        public int level;
+
+        /**
+         * The engine.
+         */
+        private Engine engine;
+
+        /**
+         * Creates the engine.
+         */
+        @Setup
+        public void setUp() {
+            engine = new Engine(new IncrementalEvaluator());
+            engine.setEndgameEmpties(0);
+            engine.setHashSize(0);
+        }
+    }
+
+    /**
+     * This class provides the endgame positions and the solver.
+     */
+    @State(Scope.Thread)
+    public static class Endgame {
+
+        /**
+         * The positions.
+         */
+        private List<Position> positions;
+
+        /**
+         * The solver.
+         */
+        private EndgameSolver solver;
+
+        /**
+         * Index of the next position.
+         */
+        private int next;
+
+        /**
+         * Creates the positions and the solver.
+         */
+        @Setup
+        public void setUp() {
+            positions = Corpus.positions(Corpus.factory(Corpus.BIT_BOARDS),
+                    Corpus.ENDGAME_EMPTIES);
+            solver = new EndgameSolver();
+        }
+
+        /**
+         * Gets the next position.
+         *
+         * @return Returns the next position of the corpus.
+         */
+        Position next() {
+            next = (next + 1) % positions.size();
+            return positions.get(next);
+        }
+    }
+
+    /**
+     * This class counts the nodes of the searches, which JMH reports per
+     * second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        /**
+         * Nodes visited in the current iteration.
+         */
+        public long nodes;
+
+        /**
+         * Resets the counter before every iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    /**
+     * This class counts the cutoffs of the searches, which JMH reports per
+     * second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Cutoffs {
+
+        /**
+         * Cutoffs in the current iteration.
+         */
+        public long cutoffs;
+
+        /**
+         * Cutoffs caused by the first move in the current iteration.
+         */
+        public long firstMoveCutoffs;
+
+        /**
+         * Resets the counters before every iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            cutoffs = 0;
+            firstMoveCutoffs = 0;
+        }
+    }
+
+    /**
+     * Generates the legal moves.
+     *
+     * @param positions The positions.
+     * @return Returns the legal moves.
+     */
+    @Benchmark
+    public long legalMoves(Positions positions) {
+        Position position = positions.next();
+        return BitBoards.legalMoves(position.getMachine(),
+                position.getHuman());
+    }
+
+    /**
+     * Computes the flips of the first legal move.
+     *
+     * @param positions The positions.
+     * @return Returns the flipped tiles.
+     */
+    @Benchmark
+    public long flips(Positions positions) {
+        Position position = positions.next();
+        return BitBoards.flips(position.getMachine(), position.getHuman(),
+                Long.numberOfTrailingZeros(position.legalMoves()));
+    }
+
+    /**
+     * Makes and undoes the first legal move.
+     *
+     * @param positions The positions.
+     * @return Returns the hash after the move.
+     */
+    @Benchmark
+    public long makeUndo(Positions positions) {
+        Position position = positions.next();
+        position.makeMove(Long.numberOfTrailingZeros(position.legalMoves()));
+        long hash = position.getHash();
+        position.undoMove();
+        return hash;
+    }
+
+    /**
+     * Evaluates with the heuristic by a full scan.
+     *
+     * @param positions The positions.
+     * @return Returns the evaluation.
+     */
+    @Benchmark
+    public double evaluate(Positions positions) {
+        return HEURISTIC.evaluate(positions.next());
+    }
+
+    /**
+     * Evaluates with the patterns.
+     *
+     * @param positions The positions.
+     * @return Returns the evaluation.
+     */
+    @Benchmark
+    public double evaluatePatterns(Positions positions) {
+        return PATTERNS.evaluate(positions.nextCopy());
+    }
+
+    /**
+     * Evaluates with the incrementally kept terms.
+     *
+     * @param positions The positions.
+     * @return Returns the evaluation.
+     */
+    @Benchmark
+    public double evaluateIncremental(Positions positions) {
+        return INCREMENTAL.evaluate(positions.next());
+    }
+
+    /**
+     * Searches the best move.
+     *
+     * @param positions The positions.
+     * @param search The engine and the level.
+     * @param nodes The node counter.
+     * @param cutoffs The cutoff counters.
+     * @return Returns the best move.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int search(Positions positions, Search search, Nodes nodes,
+            Cutoffs cutoffs) {
+        int move = search.engine.bestMove(positions.next(), search.level);
+        SearchStats stats = search.engine.getStats();
+        nodes.nodes += stats.getNodes();
+        cutoffs.cutoffs += stats.getCutoffs();
+        cutoffs.firstMoveCutoffs += stats.getFirstMoveCutoffs();
+        return move;
+    }
+
+    /**
+     * Solves an endgame position exactly.
+     *
+     * @param endgame The positions and the solver.
+     * @param nodes The node counter.
+     * @return Returns the best move.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int solve(Endgame endgame, Nodes nodes) {
+        int move = endgame.solver.bestMove(endgame.next());
+        nodes.nodes += endgame.solver.getNodes();
+        return move;
+    }
+}
@@ -0,0 +1,399 @@
+package de.sphrilix.reversi.bench;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.server.GameServer;
+import de.sphrilix.reversi.server.Threads;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class generates load on a {@link GameServer} on the loopback
+ * interface. The sessions are spread over the given number of connections,
+ * so the number of sessions is not bounded by the open files of the
+ * process. Every connection takes turns with its sessions and plays random
+ * moves against the bot as fast as possible, starting a new game whenever
+ * one is over. Once all sessions are open, the latency of
+ * the machine moves is measured for the given time, from sending the
+ * request to receiving the answer. The median, the 99th percentile and the
+ * maximum are printed, together with the number of requests rejected
+ * because the engine was overloaded.
+ *
+ * Usage: {@code ServerBenchmark [sessions] [connections] [seconds] [level]
+ * [engineThreads] [queueCapacity]}
+ */
+public final class ServerBenchmark {
+
+    /**
+     * Time a client waits after a rejected request in milliseconds.
+     */
+    private static final long BACKOFF_MILLIS = 50;
+
+    /**
+     * Utility class, no instances.
+     */
+    private ServerBenchmark() {
+    }
+
+    /**
+     * Runs the measurement.
+     *
+     * @param args The number of sessions, the number of connections, the
+     *        measured time in seconds, the level of the bot, the number of
+     *        threads of the searches and the maximum number of waiting
+     *        searches, all optional.
+     * @throws IOException If the server cannot be started.
+     * @throws InterruptedException If interrupted while measuring.
+     */
+    public static void main(String[] args) throws IOException,
+            InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int connections = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.min(sessions, 1000);
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int level = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int threads = args.length > 4 ? Integer.parseInt(args[4])
+                : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 5 ? Integer.parseInt(args[5])
+                : sessions;
+        if (connections < 1 || connections > sessions) {
+            throw new IllegalArgumentException("Connections must be between "
+                    + "1 and the number of sessions!");
+        }
+
+        try (GameServer server = new GameServer(threads, queueCapacity,
+                sessions)) {
+            server.start(0);
+            CountDownLatch opened = new CountDownLatch(connections);
+            CountDownLatch measuring = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(connections);
+            AtomicLong busy = new AtomicLong();
+            Client[] clients = new Client[connections];
+            ExecutorService pool = Threads.newThreadPerTaskExecutor(
+                    "client");
+            for (int i = 0; i < connections; i++) {
+                int count = sessions / connections
+                        + (i < sessions % connections ? 1 : 0);
+                clients[i] = new Client(server.getPort(), count, level, i,
+                        opened, measuring, finished, busy);
+                pool.execute(clients[i]);
+            }
+            opened.await();
+            long start = System.nanoTime();
+            measuring.countDown();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+            for (Client client : clients) {
+                client.stop();
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            finished.await();
+            pool.shutdown();
+
+            long[] latencies = merge(clients);
+            Arrays.sort(latencies);
+            System.out.printf("%d sessions on %d connections, level %d, %d "
+                    + "engine threads, virtual threads %s%n", sessions,
+                    connections, level, threads,
+                    Threads.virtualThreadsAvailable() ? "on" : "off");
+            System.out.printf("%d machine moves in %.1f s, %.0f moves/s, "
+                    + "%d busy%n", latencies.length, elapsed,
+                    latencies.length / elapsed, busy.get());
+            if (latencies.length > 0) {
+                System.out.printf("latency p50 %.2f ms, p99 %.2f ms, max "
+                        + "%.2f ms%n", percentile(latencies, 0.5) / 1e6,
+                        percentile(latencies, 0.99) / 1e6,
+                        latencies[latencies.length - 1] / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Collects the latencies of all clients.
+     *
+     * @param clients The clients.
+     * @return Returns the latencies in nanoseconds, unsorted.
+     */
+    private static long[] merge(Client[] clients) {
+        int count = 0;
+        for (Client client : clients) {
+            count += client.getCount();
+        }
+        long[] latencies = new long[count];
+        int offset = 0;
+        for (Client client : clients) {
+            int n = client.getCount();
+            System.arraycopy(client.getLatencies(), 0, latencies, offset, n);
+            offset += n;
+        }
+        return latencies;
+    }
+
+    /**
+     * Gets a percentile of sorted values.
+     *
+     * @param sorted The values in ascending order, at least one.
+     * @param share The share of values below the percentile.
+     * @return Returns the percentile.
+     */
+    private static long percentile(long[] sorted, double share) {
+        int index = (int) Math.ceil(share * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * This class simulates the players of the sessions of one connection.
+     */
+    private static final class Client implements Runnable {
+
+        /**
+         * Port of the server.
+         */
+        private final int port;
+
+        /**
+         * Number of sessions.
+         */
+        private final int sessions;
+
+        /**
+         * Level of the bot.
+         */
+        private final int level;
+
+        /**
+         * Source of the moves of the human.
+         */
+        private final Random random;
+
+        /**
+         * Counted down once the sessions are open.
+         */
+        private final CountDownLatch opened;
+
+        /**
+         * Counted down when the measurement starts.
+         */
+        private final CountDownLatch measuring;
+
+        /**
+         * Counted down once the client is done.
+         */
+        private final CountDownLatch finished;
+
+        /**
+         * Number of requests answered with {@code BUSY}, of all clients.
+         */
+        private final AtomicLong busy;
+
+        /**
+         * Whether the client should stop.
+         */
+        private volatile boolean stopped;
+
+        /**
+         * Measured latencies in nanoseconds.
+         */
+        private long[] latencies = new long[64];
+
+        /**
+         * Number of measured latencies, valid once finished.
+         */
+        private volatile int count;
+
+        /**
+         * Creates a new client.
+         *
+         * @param port The port of the server.
+         * @param sessions The number of sessions.
+         * @param level The level of the bot.
+         * @param seed The seed of the moves of the human.
+         * @param opened The latch counted down once the sessions are open.
+         * @param measuring The latch counted down when the measurement
+         *        starts.
+         * @param finished The latch counted down once the client is done.
+         * @param busy The counter of rejected requests.
+         */
+        Client(int port, int sessions, int level, long seed,
+                CountDownLatch opened,
+                CountDownLatch measuring, CountDownLatch finished,
+                AtomicLong busy) {
+            this.port = port;
+            this.sessions = sessions;
+            this.level = level;
+            random = new Random(seed);
+            this.opened = opened;
+            this.measuring = measuring;
+            this.finished = finished;
+            this.busy = busy;
+        }
+
+        /**
+         * Stops the client after its running request.
+         */
+        void stop() {
+            stopped = true;
+        }
+
+        /**
+         * Getter for the number of latencies.
+         *
+         * @return Returns the number of measured machine moves.
+         */
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * Getter for the latencies.
+         *
+         * @return Returns the latencies, valid up to {@link #getCount()}.
+         */
+        long[] getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * Plays games until stopped.
+         */
+        @Override
+        public void run() {
+            boolean open = false;
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                    port);
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(),
+                                    StandardCharsets.US_ASCII));
+                    Writer out = new BufferedWriter(new OutputStreamWriter(
+                            socket.getOutputStream(),
+                            StandardCharsets.US_ASCII))) {
+                socket.setTcpNoDelay(true);
+                String[][] states = new String[sessions][];
+                for (int i = 0; i < sessions; i++) {
+                    states[i] = open(in, out);
+                }
+                opened.countDown();
+                open = true;
+                measuring.await();
+                int n = 0;
+                for (int i = 0; !stopped; i = (i + 1) % sessions) {
+                    String[] state = states[i];
+                    String id = state[1];
+                    if (state[2].equals("-")) {
+                        request(in, out, "CLOSE " + id);
+                        states[i] = open(in, out);
+                    } else if (state[2].equals("H")) {
+                        int square = randomMove(state[3]);
+                        states[i] = request(in, out, "MOVE " + id + " "
+                                + (square / Board.SIZE + 1) + " "
+                                + (square % Board.SIZE + 1));
+                    } else {
+                        long start = System.nanoTime();
+                        String[] next = request(in, out, "MACHINE " + id);
+                        long latency = System.nanoTime() - start;
+                        if (next == null) {
+
+                            // Back off, like a client which is told so.
+                            busy.incrementAndGet();
+                            Thread.sleep(BACKOFF_MILLIS);
+                            continue;
+                        }
+                        states[i] = next;
+                        if (n == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, 2 * n);
+                        }
+                        latencies[n++] = latency;
+                    }
+                }
+                count = n;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!open) {
+                    opened.countDown();
+                }
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Opens a new session.
+         *
+         * @param in The reader of the connection.
+         * @param out The writer of the connection.
+         * @return Returns the words of the answer.
+         * @throws IOException If the connection fails or no session is
+         *         left.
+         */
+        private String[] open(BufferedReader in, Writer out)
+                throws IOException {
+            String[] state = request(in, out, "NEW H " + level);
+            if (state == null) {
+                throw new IOException("No session left");
+            }
+            return state;
+        }
+
+        /**
+         * Sends a request and reads its answer.
+         *
+         * @param in The reader of the connection.
+         * @param out The writer of the connection.
+         * @param request The request.
+         * @return Returns the words of the answer, {@code null} if the
+         *         server was busy.
+         * @throws IOException If the connection fails.
+         */
+        private static String[] request(BufferedReader in, Writer out,
+                String request) throws IOException {
+            out.write(request);
+            out.write('\n');
+            out.flush();
+            String answer = in.readLine();
+            if (answer == null || answer.startsWith("ERR")) {
+                throw new IOException("Request " + request + " failed: "
+                        + answer);
+            }
+            return answer.equals("BUSY") ? null : answer.split(" ");
+        }
+
+        /**
+         * Chooses a random legal move of the human.
+         *
+         * @param slots The slots of the state of the game.
+         * @return Returns the square of the move.
+         */
+        private int randomMove(String slots) {
+            long human = 0;
+            long machine = 0;
+            for (int square = 0; square < slots.length(); square++) {
+                if (slots.charAt(square) == 'X') {
+                    human |= 1L << square;
+                } else if (slots.charAt(square) == 'O') {
+                    machine |= 1L << square;
+                }
+            }
+            long moves = BitBoards.legalMoves(human, machine);
+            for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0;
+                    skip--) {
+                moves &= moves - 1;
+            }
+            return Long.numberOfTrailingZeros(moves);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.sphrilix.reversi.bench;
+
+import de.sphrilix.reversi.engine.BitBoardReversi;
+import de.sphrilix.reversi.engine.IncrementalEvaluator;
+import de.sphrilix.reversi.engine.LazySmpSearch;
+import de.sphrilix.reversi.engine.ParallelSearch;
+import de.sphrilix.reversi.engine.Position;
+import de.sphrilix.reversi.engine.TranspositionTable;
+import de.sphrilix.reversi.model.Player;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class measures how the Lazy SMP search scales with the number of
+ * threads. For every number of threads up to the given maximum the midgame
+ * positions of the {@link Corpus} are searched with the given depth, each
+ * with an empty transposition table. The nodes per second and the average
+ * time to reach every depth are printed.
+ *
+ * Usage: {@code SmpScaling [depth] [maxThreads]}
+ */
+public final class SmpScaling {
+
+    /**
+     * Utility class, no instances.
+     */
+    private SmpScaling() {
+    }
+
+    /**
+     * Runs the measurement.
+     *
+     * @param args The depth of the search and the maximum number of threads,
+     *        both optional.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        List<Position> positions = Corpus.positions(() -> {
+            BitBoardReversi board = new BitBoardReversi(Player.HUMAN);
+            board.setEndgameEmpties(0);
+            return board;
+        }, Corpus.MIDGAME_EMPTIES);
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        TranspositionTable table =
+                new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+
+        System.out.printf("%7s %12s %10s", "threads", "nodes/s", "speedup");
+        for (int d = 1; d <= depth; d++) {
+            System.out.printf(" %8s", "d" + d + " ms");
+        }
+        System.out.println();
+        double baseTime = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool =
+                    ParallelSearch.createPool(Math.max(1, threads - 1));
+            LazySmpSearch search = new LazySmpSearch(evaluator, pool,
+                    threads - 1);
+            search.setTranspositionTable(table);
+            long nodes = 0;
+            long[] timeToDepth = new long[depth + 1];
+            long start = System.nanoTime();
+            for (Position position : positions) {
+                table.clear();
+                table.newSearch();
+                search.bestMove(position, depth);
+                nodes += search.getNodes();
+                for (int d = 1; d <= depth; d++) {
+                    timeToDepth[d] += search.getTimeToDepth(d);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (threads == 1) {
+                baseTime = seconds;
+            }
+            System.out.printf("%7d %12.0f %10.2f", threads, nodes / seconds,
+                    baseTime / seconds);
+            for (int d = 1; d <= depth; d++) {
+                System.out.printf(" %8.1f",
+                        timeToDepth[d] / 1e6 / positions.size());
+            }
+            System.out.println();
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,840 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.DoubleSupplier;
+
+/**
+ * This class provides a depth-first alpha-beta search of the machine on a
+ * single {@link Position}. It calculates the same scores as a plain minimax
+ * search, and therefore chooses the same moves, but skips the subtrees
+ * which cannot change the result.
+ *
+ * The score of a node contains its own score, so the window of a node is
+ * shifted by that score for its children. The shifted windows get widened by
+ * {@link #MARGIN}, so that rounding of the shifted bounds never cuts off a
+ * child which minimax would have chosen. Scores outside of the window are
+ * bounds as usual (fail-soft).
+ *
+ * Evaluators which do not accumulate give the inner nodes a score of 0, so
+ * the search is a plain alpha-beta on the scores of the leaves.
+ *
+ * Searched positions can be kept in a {@link TranspositionTable}. Since
+ * every node adds its own score, scores of different depths are not
+ * comparable, so a stored score is only used for the same depth. The stored
+ * best move is searched first in any case.
+ *
+ * The moves of a node are tried in the order of a {@link MoveOrderer}, and
+ * at nodes with a high remaining depth optionally by the results of a
+ * shallow search of every move. The order does not change the scores, only
+ * the number of searched nodes. In the opening, moves which lead to the
+ * same position up to a {@link Symmetry} as a move on a lower square are
+ * skipped; they have the same score, so the result stays the same.
+ *
+ * Besides a fixed depth the search can run in a given time: it deepens
+ * iteratively and answers with the best move of the deepest completed
+ * iteration. Either search can be cancelled by a {@link CancellationToken},
+ * which is checked together with the clock.
+ *
+ * Every search counts its nodes, evaluations, lookups and cutoffs and keeps
+ * the principal variation of its result, see {@link #getStats()}.
+ */
+public class AlphaBetaSearch {
+
+    /**
+     * Widening of the shifted windows, far above the rounding error of a sum
+     * of scores.
+     */
+    private static final double MARGIN = 1e-6;
+
+    /**
+     * Number of nodes between two checks of the clock, minus 1.
+     */
+    private static final int CHECK_INTERVAL = 1023;
+
+    /**
+     * Factor by which an iteration takes at least longer than the previous
+     * one; on midgame positions it is 2 to 4.
+     */
+    private static final int ITERATION_GROWTH = 2;
+
+    /**
+     * Thrown to leave an aborted search. Preallocated and without stack
+     * trace, so aborting costs nothing.
+     */
+    private static final AbortedException ABORTED = new AbortedException();
+
+    /**
+     * Evaluator for the scores of the nodes.
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * Table of searched positions, {@code null} to search without.
+     */
+    private TranspositionTable table;
+
+    /**
+     * Entry for the lookups in the table.
+     */
+    private final TranspositionTable.Entry entry =
+            new TranspositionTable.Entry();
+
+    /**
+     * Number of empty slots from which on symmetric moves are skipped.
+     * Later on, symmetric positions are too rare to pay for the check.
+     */
+    static final int SYMMETRY_EMPTIES = 50;
+
+    /**
+     * Depth of the shallow searches which order the moves.
+     */
+    private static final int SHALLOW_DEPTH = 1;
+
+    /**
+     * Order of the moves.
+     */
+    private MoveOrderer orderer = new MoveOrderer();
+
+    /**
+     * Ordered moves of every ply.
+     */
+    private final int[][] moveLists =
+            new int[Position.MAX_PLY][Position.MAX_PLY];
+
+    /**
+     * Results of the shallow searches of every ply.
+     */
+    private final double[][] shallowScores =
+            new double[Position.MAX_PLY][Position.MAX_PLY];
+
+    /**
+     * Remaining depth from which on the moves get ordered by shallow
+     * searches, 0 if never.
+     */
+    private int shallowOrderingDepth;
+
+    /**
+     * Number of nodes of the latest search which were cut off.
+     */
+    private long cutoffs;
+
+    /**
+     * Number of cutoffs of the latest search caused by the first move.
+     */
+    private long firstMoveCutoffs;
+
+    /**
+     * Number of nodes visited by the latest search.
+     */
+    private long nodes;
+
+    /**
+     * Number of leaves evaluated by the latest search.
+     */
+    private long evaluations;
+
+    /**
+     * Number of lookups in the table by the latest search.
+     */
+    private long tableProbes;
+
+    /**
+     * Number of lookups of the latest search which found the position.
+     */
+    private long tableHits;
+
+    /**
+     * Principal variations of the nodes of every ply, each starting with the
+     * best move of the node.
+     */
+    private final int[][] lines =
+            new int[Position.MAX_PLY + 1][Position.MAX_PLY];
+
+    /**
+     * Lengths of the principal variations of every ply.
+     */
+    private final int[] lineLengths = new int[Position.MAX_PLY + 1];
+
+    /**
+     * Principal variation of the latest completed search.
+     */
+    private int[] principalVariation = new int[0];
+
+    /**
+     * Score of the latest completed search.
+     */
+    private double resultScore;
+
+    /**
+     * Point in time ({@link System#nanoTime()}) when the latest search
+     * started.
+     */
+    private long startTime;
+
+    /**
+     * Nanoseconds from the start of the latest search until its latest
+     * completed iteration, or until its end if it ran in a given time.
+     */
+    private long elapsed;
+
+    /**
+     * Depth of the latest completed search.
+     */
+    private int completedDepth;
+
+    /**
+     * Point in time ({@link System#nanoTime()}) when the search has to stop.
+     */
+    private long deadline = Long.MAX_VALUE;
+
+    /**
+     * Token to cancel the search from another thread.
+     */
+    private CancellationToken token = new CancellationToken();
+
+    /**
+     * Bound of another search which may raise the alpha of the searched
+     * position while it runs, {@code null} if none.
+     */
+    private DoubleSupplier sharedAlpha;
+
+    /**
+     * Bound of another search which may lower the beta of the searched
+     * position while it runs, {@code null} if none.
+     */
+    private DoubleSupplier sharedBeta;
+
+    /**
+     * Latest value of {@link #sharedAlpha}, for the searched position.
+     */
+    private double rootAlpha;
+
+    /**
+     * Latest value of {@link #sharedBeta}, for the searched position.
+     */
+    private double rootBeta;
+
+    /**
+     * Ply of the position searched with shared bounds.
+     */
+    private int rootPly;
+
+    /**
+     * Sums of the own scores of the nodes from the position searched with
+     * shared bounds down to every ply, which shift its window.
+     */
+    private final double[] shifts = new double[Position.MAX_PLY + 1];
+
+    /**
+     * Creates a new search.
+     *
+     * @param evaluator The evaluator for the scores of the nodes.
+     */
+    public AlphaBetaSearch(Evaluator evaluator) {
+        if (evaluator == null) {
+            throw new IllegalArgumentException();
+        }
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Searches the best move of the Player who is next on the given position.
+     * On equal scores the move on the lower square wins, which is the first
+     * in row-major order. The position is unchanged afterwards.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param depth The depth of the search, the level of the bot.
+     * @return Returns the square of the best move.
+     * @throws CancellationException If the token has been cancelled. The
+     *         position is restored then.
+     */
+    public int bestMove(Position position, int depth) {
+        startSearch(position);
+        try {
+            return searchIteration(position, depth, -1);
+        } catch (AbortedException e) {
+            throw new CancellationException("Search cancelled!");
+        }
+    }
+
+    /**
+     * Searches the best move of the Player who is next on the given position
+     * within the given time. The depth is increased by one until the time is
+     * up or the end of the game is reached, the best move of the previous
+     * iteration is searched first. A new iteration is not started if the
+     * time left is less than {@link #ITERATION_GROWTH} times the time the
+     * previous iteration took, since it would hardly finish. Depth 1 is
+     * always completed, even if the token gets cancelled, which ends the
+     * search like the time. The position is unchanged afterwards.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param millis The time for the search in milliseconds.
+     * @return Returns the square of the best move of the deepest completed
+     *         iteration.
+     */
+    public int bestMoveInTime(Position position, long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("No time to search!");
+        }
+        startSearch(position);
+        long budget = millis * 1_000_000L;
+        int bestMove = searchRoot(position, 1, -1);
+        deadline = startTime + budget;
+        int maxDepth = position.getEmpties();
+        long iterationStart = startTime;
+        long now = System.nanoTime();
+        try {
+            while (completedDepth < maxDepth && deadline - now
+                    >= (now - iterationStart) * ITERATION_GROWTH) {
+                iterationStart = now;
+                bestMove = searchIteration(position, completedDepth + 1,
+                        bestMove);
+                now = System.nanoTime();
+            }
+        } catch (AbortedException e) {
+
+            // Time is up, keep the result of the latest iteration.
+        }
+        deadline = Long.MAX_VALUE;
+        elapsed = System.nanoTime() - startTime;
+        return bestMove;
+    }
+
+    /**
+     * Setter for the transposition table. The table is not cleared between
+     * searches, the caller decides when a new search generation starts.
+     *
+     * @param table The table, {@code null} to search without table.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Sets the square the row-major order of the moves starts with, used
+     * for moves the {@link MoveOrderer} cannot tell apart. Searches sharing
+     * a table use different offsets to explore different parts of the tree
+     * first. The scores do not depend on the order.
+     *
+     * @param offset The first square, between 0 and 63.
+     */
+    public void setOrderOffset(int offset) {
+        orderer.setOffset(offset);
+    }
+
+    /**
+     * Setter for the token which cancels the following searches.
+     *
+     * @param token The token.
+     */
+    public void setCancellationToken(CancellationToken token) {
+        if (token == null) {
+            throw new IllegalArgumentException();
+        }
+        this.token = token;
+    }
+
+    /**
+     * Setter for the order of the moves.
+     *
+     * @param orderer The orderer, used by this search only.
+     */
+    public void setMoveOrderer(MoveOrderer orderer) {
+        if (orderer == null) {
+            throw new IllegalArgumentException();
+        }
+        this.orderer = orderer;
+    }
+
+    /**
+     * Getter for the order of the moves.
+     *
+     * @return Returns the orderer of this search.
+     */
+    public MoveOrderer getMoveOrderer() {
+        return orderer;
+    }
+
+    /**
+     * Sets from which remaining depth on the moves of a node are ordered by
+     * shallow searches instead of the {@link MoveOrderer}, unless the
+     * transposition table knows the best move.
+     *
+     * @param depth The remaining depth, 0 to never search shallow.
+     */
+    public void setShallowOrderingDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative!");
+        }
+        shallowOrderingDepth = depth;
+    }
+
+    /**
+     * Getter for the number of cutoffs.
+     *
+     * @return Returns the number of nodes of the latest search whose
+     *         remaining moves were cut off.
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Getter for the number of cutoffs by the first move.
+     *
+     * @return Returns the number of cutoffs of the latest search caused by
+     *         the first move of a node, a measure of the order.
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * Getter for the depth of the latest search.
+     *
+     * @return Returns the depth of the latest completed search.
+     */
+    public int getDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Getter for the number of visited nodes.
+     *
+     * @return Returns the number of nodes visited by the latest search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the statistics of the latest search. The principal variation and
+     * the score are the ones of the latest completed iteration, the counters
+     * include an aborted iteration.
+     *
+     * @return Returns the statistics.
+     */
+    public SearchStats getStats() {
+        return new SearchStats(completedDepth, resultScore, elapsed, nodes,
+                evaluations, tableProbes, tableHits, cutoffs,
+                firstMoveCutoffs, principalVariation);
+    }
+
+    /**
+     * Stops the search of this instance as soon as possible by cancelling
+     * its token. It throws an {@link AbortedException}, and all further
+     * searches of this instance do so as well, until a new token is set.
+     */
+    void stop() {
+        token.cancel();
+    }
+
+    /**
+     * Prepares a new search of the given position.
+     *
+     * @param position The position to be searched.
+     */
+    void startSearch(Position position) {
+        if (position.legalMoves() == 0) {
+            throw new IllegalArgumentException("No possible move!");
+        }
+        nodes = 0;
+        evaluations = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        completedDepth = 0;
+        principalVariation = new int[0];
+        resultScore = 0.0;
+        elapsed = 0;
+        deadline = Long.MAX_VALUE;
+        orderer.newSearch();
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Searches the moves of the root with the given depth. If the search
+     * gets aborted, the position is restored before the exception leaves.
+     *
+     * @param position The position to be searched.
+     * @param depth The depth of the search.
+     * @param firstMove The move to be searched first, or -1 for the order
+     *        of the {@link MoveOrderer}.
+     * @return Returns the square of the best move.
+     * @throws AbortedException If the search has been stopped or the time
+     *         is up.
+     */
+    int searchIteration(Position position, int depth, int firstMove) {
+        int rootPly = position.getPly();
+        try {
+            return searchRoot(position, depth, firstMove);
+        } catch (AbortedException e) {
+
+            // Take back the moves of the aborted iteration.
+            while (position.getPly() > rootPly) {
+                position.undoMove();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Calculates the score of the given position with the given window,
+     * without time limit. Used by searches which split the root moves
+     * between several instances. The statistics of this search then hold
+     * the score and the principal variation of the given position.
+     *
+     * @param position The position to be scored.
+     * @param depth The remaining depth.
+     * @param alpha The score the machine is already assured of.
+     * @param beta The score the human is already assured of.
+     * @return Returns the score of the position, exact if it lies strictly
+     *         inside the window, else a bound.
+     */
+    double score(Position position, int depth, double alpha, double beta) {
+        return score(position, depth, alpha, beta, null, null);
+    }
+
+    /**
+     * Calculates the score of the given position with the given window,
+     * which gets narrowed by the bounds of other searches while it runs.
+     * The bounds are read every few nodes, and every node on the way to the
+     * actual one narrows its window to them before its next move. A score
+     * outside of the narrowed window is a bound as well.
+     *
+     * @param position The position to be scored.
+     * @param depth The remaining depth.
+     * @param alpha The score the machine is already assured of.
+     * @param beta The score the human is already assured of.
+     * @param sharedAlpha The score the machine gets assured of by other
+     *        searches, {@code null} if none.
+     * @param sharedBeta The score the human gets assured of by other
+     *        searches, {@code null} if none.
+     * @return Returns the score of the position, exact if it lies strictly
+     *         inside the narrowed window, else a bound.
+     */
+    double score(Position position, int depth, double alpha, double beta,
+            DoubleSupplier sharedAlpha, DoubleSupplier sharedBeta) {
+        deadline = Long.MAX_VALUE;
+        this.sharedAlpha = sharedAlpha;
+        this.sharedBeta = sharedBeta;
+        int ply = position.getPly();
+        rootAlpha = alpha;
+        rootBeta = beta;
+        rootPly = ply;
+        shifts[ply] = 0.0;
+        double score;
+        try {
+            score = alphaBeta(position, depth, alpha, beta);
+        } finally {
+            this.sharedAlpha = null;
+            this.sharedBeta = null;
+        }
+        principalVariation = Arrays.copyOf(lines[ply], lineLengths[ply]);
+        resultScore = score;
+        return score;
+    }
+
+    /**
+     * Searches the moves of the root with the given depth. On equal scores
+     * the move on the lower square wins, independent of the order the moves
+     * are searched in. So a lower square is searched with a window that
+     * includes the best score so far.
+     *
+     * @param position The position to be searched.
+     * @param depth The depth of the search.
+     * @param firstMove The move to be searched first, or -1 for the order
+     *        of the {@link MoveOrderer}.
+     * @return Returns the square of the best move.
+     */
+    private int searchRoot(Position position, int depth, int firstMove) {
+        boolean maximize = position.next() == Player.MACHINE;
+        int ply = position.getPly();
+        int[] squares = moveLists[ply];
+        int count = orderer.order(position, distinctMoves(evaluator,
+                position, position.legalMoves()), firstMove, squares);
+        int bestMove = -1;
+        double bestScore = 0;
+        for (int i = 0; i < count; i++) {
+            int square = squares[i];
+            position.makeMove(square);
+            double score;
+            if (bestMove < 0) {
+                score = alphaBeta(position, depth - 1,
+                        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            } else if (maximize) {
+                double alpha = square < bestMove ? Math.nextDown(bestScore)
+                        : bestScore;
+                score = alphaBeta(position, depth - 1, alpha,
+                        Double.POSITIVE_INFINITY);
+            } else {
+                double beta = square < bestMove ? Math.nextUp(bestScore)
+                        : bestScore;
+                score = alphaBeta(position, depth - 1,
+                        Double.NEGATIVE_INFINITY, beta);
+            }
+            position.undoMove();
+            boolean better = maximize ? score > bestScore : score < bestScore;
+            if (bestMove < 0 || better
+                    || (score == bestScore && square < bestMove)) {
+                bestMove = square;
+                bestScore = score;
+                updateLine(ply, square);
+            }
+        }
+        principalVariation = Arrays.copyOf(lines[ply], lineLengths[ply]);
+        resultScore = bestScore;
+        completedDepth = depth;
+        elapsed = System.nanoTime() - startTime;
+        return bestMove;
+    }
+
+    /**
+     * Calculates the score of the given position. The result is exact if it
+     * lies strictly between alpha and beta, else it is an upper bound (not
+     * above alpha) or a lower bound (not below beta) of the exact score.
+     *
+     * @param position The position to be scored.
+     * @param depth The remaining depth.
+     * @param alpha The score the machine is already assured of.
+     * @param beta The score the human is already assured of.
+     * @return Returns the score of the position.
+     */
+    private double alphaBeta(Position position, int depth, double alpha,
+            double beta) {
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            if (token.isCancelled() || System.nanoTime() >= deadline) {
+                throw ABORTED;
+            }
+            readSharedBounds();
+        }
+        int ply = position.getPly();
+        lineLengths[ply] = 0;
+        long moves = position.legalMoves();
+        if (depth <= 0 || moves == 0) {
+            evaluations++;
+            return evaluator.evaluate(position);
+        }
+
+        moves = distinctMoves(evaluator, position, moves);
+
+        // Use the stored score of the same depth, if it decides the window.
+        long key = position.getHash();
+        int ttMove = -1;
+        if (table != null && probe(key)) {
+            ttMove = entry.getMove();
+            if (entry.getDepth() == depth) {
+                double stored = entry.getScore();
+                switch (entry.getBound()) {
+                    case EXACT:
+                        return stored;
+                    case LOWER:
+                        if (stored >= beta) {
+                            return stored;
+                        }
+                        break;
+                    case UPPER:
+                        if (stored <= alpha) {
+                            return stored;
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException();
+                }
+            }
+        }
+        double score = evaluator.accumulates()
+                ? evaluator.evaluate(position) : 0.0;
+        double originalAlpha = alpha;
+        double originalBeta = beta;
+
+        // Window of the children, shifted by the own score.
+        double childAlpha = alpha - score - MARGIN;
+        double childBeta = beta - score + MARGIN;
+        shifts[ply + 1] = shifts[ply] + score;
+        boolean maximize = position.next() == Player.MACHINE;
+        double bestScore = maximize ? Double.NEGATIVE_INFINITY
+                : Double.POSITIVE_INFINITY;
+        int bestMove = -1;
+
+        int[] squares = moveLists[ply];
+        int count = orderer.order(position, moves, ttMove, squares);
+        if (shallowOrderingDepth > 0 && depth >= shallowOrderingDepth
+                && ttMove < 0) {
+            orderByShallowSearch(position, squares, count, maximize);
+        }
+        for (int i = 0; i < count; i++) {
+            int square = squares[i];
+            position.makeMove(square);
+            double childScore = alphaBeta(position, depth - 1, childAlpha,
+                    childBeta);
+            position.undoMove();
+            double nodeScore = score + childScore;
+            if (maximize ? nodeScore > bestScore : nodeScore < bestScore) {
+                bestScore = nodeScore;
+                bestMove = square;
+                if (maximize ? bestScore >= beta : bestScore <= alpha) {
+                    cutoffs++;
+                    if (i == 0) {
+                        firstMoveCutoffs++;
+                    }
+                    orderer.cutoff(position, square, depth);
+                    break;
+                } else if (maximize && bestScore > alpha) {
+                    alpha = bestScore;
+                    childAlpha = alpha - score - MARGIN;
+                    updateLine(ply, square);
+                } else if (!maximize && bestScore < beta) {
+                    beta = bestScore;
+                    childBeta = beta - score + MARGIN;
+                    updateLine(ply, square);
+                }
+            }
+
+            // Narrow the window to the bounds of other searches, as long as
+            // it stays open; an ancestor cuts off the node otherwise.
+            if (sharedAlpha != null || sharedBeta != null) {
+                double margin = (ply - rootPly) * MARGIN;
+                double sharedLow = rootAlpha - shifts[ply] - margin;
+                double sharedHigh = rootBeta - shifts[ply] + margin;
+                if (sharedLow > alpha && sharedLow < beta) {
+                    alpha = sharedLow;
+                    originalAlpha = Math.max(originalAlpha, alpha);
+                    childAlpha = alpha - score - MARGIN;
+                }
+                if (sharedHigh < beta && sharedHigh > alpha) {
+                    beta = sharedHigh;
+                    originalBeta = Math.min(originalBeta, beta);
+                    childBeta = beta - score + MARGIN;
+                }
+                if (maximize ? bestScore >= beta : bestScore <= alpha) {
+                    cutoffs++;
+                    break;
+                }
+            }
+        }
+        if (table != null) {
+            Bound bound = bestScore <= originalAlpha ? Bound.UPPER
+                    : bestScore >= originalBeta ? Bound.LOWER : Bound.EXACT;
+            table.store(key, depth, bound, bestScore, bestMove);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Reads the bounds of other searches, if any. They only ever narrow the
+     * window of the searched position.
+     */
+    private void readSharedBounds() {
+        if (sharedAlpha != null) {
+            rootAlpha = Math.max(rootAlpha, sharedAlpha.getAsDouble());
+        }
+        if (sharedBeta != null) {
+            rootBeta = Math.min(rootBeta, sharedBeta.getAsDouble());
+        }
+    }
+
+    /**
+     * Removes the moves which are symmetric to a move on a lower square, in
+     * the opening only and if the evaluator scores symmetric positions
+     * alike.
+     *
+     * @param evaluator The evaluator of the search.
+     * @param position The position.
+     * @param moves The bitboard of the possible moves.
+     * @return Returns the bitboard of the moves to be searched.
+     */
+    static long distinctMoves(Evaluator evaluator, Position position,
+            long moves) {
+        return position.getEmpties() >= SYMMETRY_EMPTIES
+                && evaluator.isSymmetric()
+                ? Symmetry.distinctMoves(position.getHuman(),
+                        position.getMachine(), moves)
+                : moves;
+    }
+
+    /**
+     * Looks up the given position in the table and counts the lookup.
+     *
+     * @param key The hash of the position.
+     * @return Returns whether the position was found, its data is then in
+     *         the entry.
+     */
+    private boolean probe(long key) {
+        tableProbes++;
+        if (table.probe(key, entry)) {
+            tableHits++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the principal variation of a node to the given move, followed by
+     * the principal variation of the node after the move.
+     *
+     * @param ply The ply of the node.
+     * @param square The new best move of the node.
+     */
+    private void updateLine(int ply, int square) {
+        int length = lineLengths[ply + 1];
+        lines[ply][0] = square;
+        System.arraycopy(lines[ply + 1], 0, lines[ply], 1, length);
+        lineLengths[ply] = length + 1;
+    }
+
+    /**
+     * Sorts the moves of a node by the results of a shallow search of each,
+     * the best for the Player who is next first. Moves with equal results
+     * keep their order.
+     *
+     * @param position The position of the node.
+     * @param squares The squares of the moves.
+     * @param count The number of moves.
+     * @param maximize Whether the machine is next.
+     */
+    private void orderByShallowSearch(Position position, int[] squares,
+            int count, boolean maximize) {
+        double[] scores = shallowScores[position.getPly()];
+        for (int i = 0; i < count; i++) {
+            int square = squares[i];
+            position.makeMove(square);
+            double score = alphaBeta(position, SHALLOW_DEPTH - 1,
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            position.undoMove();
+            if (!maximize) {
+                score = -score;
+            }
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                squares[j] = squares[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            squares[j] = square;
+        }
+    }
+
+    /**
+     * Exception to leave a search which has been cancelled or whose time is
+     * up.
+     */
+    static class AbortedException extends RuntimeException {
+
+        /**
+         * Version of the serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates the exception without message, cause and stack trace.
+         */
+        AbortedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,690 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.IllegalMoveExceptions;
+import de.sphrilix.reversi.model.Player;
+import de.sphrilix.reversi.model.Reversi;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * This class provides an implementation of Reversi as a single player
+ * application, using the given Board interface. In contrast to
+ * {@link Reversi} the position is stored in two bitboards, one for each
+ * Player. Bit {@code row * SIZE + col} of a bitboard is set if and only if
+ * the slot at the given coordinates holds a tile of the Player. The results
+ * of all operations, including the choice of the machine, are the same as
+ * the ones of {@link Reversi}, but the machine runs an alpha-beta search on
+ * a single {@link Position} instead of building up a game tree of boards,
+ * which allows levels up to {@link #MAX_LEVEL}. Only with few empty slots
+ * left the machine may choose differently, since it then solves the game
+ * exactly, see {@link #setEndgameEmpties(int)}. All boards derived from one
+ * game share the {@link Engine} of the bot and its transposition table.
+ * Games which are many and idle most of the time, like the ones of a
+ * server, can do without an engine of their own and search with the one of
+ * the thread running the machine move instead, see
+ * {@link #machineMoveAsync(Executor, Supplier)}.
+ * Every board made by the machine carries the {@link SearchStats} of the
+ * search which chose its move.
+ */
+public class BitBoardReversi implements Board {
+
+    /**
+     * The highest level of the bot, i.e., the maximum search depth.
+     */
+    public static final int MAX_LEVEL = 10;
+
+    /**
+     * The standard level of the bot.
+     */
+    private static final int STANDARD_LEVEL = 3;
+
+    /**
+     * Evaluator for the score of the bot.
+     */
+    private static final IncrementalEvaluator EVALUATOR =
+            new IncrementalEvaluator();
+
+    /**
+     * Standard executor of the asynchronous machine moves. Its threads are
+     * daemons, so they do not keep the application alive.
+     */
+    private static final ExecutorService MACHINE_MOVES =
+            Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "machine-move");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Player who is next.
+     */
+    private Player next;
+
+    /**
+     * Player who started the game.
+     */
+    private Player started;
+
+    /**
+     * Current level of the bot.
+     */
+    private int level;
+
+    /**
+     * Bitboard of the slots occupied by the human.
+     */
+    private long human;
+
+    /**
+     * Bitboard of the slots occupied by the machine.
+     */
+    private long machine;
+
+    /**
+     * Bot of the machine, shared by all boards of a game, {@code null} if
+     * the game has none.
+     */
+    private Engine engine;
+
+    /**
+     * Statistics of the search which chose the latest move, {@code null} if
+     * the human made it.
+     */
+    private SearchStats stats;
+
+    /**
+     * Creates a new game instance.
+     */
+    public BitBoardReversi() {
+        this(Player.HUMAN);
+    }
+
+    /**
+     * Creates a new instance by a given Player who starts next game.
+     *
+     * @param started The player who starts next game;
+     */
+    public BitBoardReversi(Player started) {
+        this(started, EVALUATOR);
+    }
+
+    /**
+     * Creates a new instance by a given Player who starts next game, whose
+     * bot searches with the given evaluator, e.g., a
+     * {@link PatternEvaluator}. The score of the board stays the one of
+     * {@link Reversi}.
+     *
+     * @param started The player who starts next game.
+     * @param evaluator The evaluator of the bot.
+     */
+    public BitBoardReversi(Player started, Evaluator evaluator) {
+        this(started, new Engine(evaluator));
+    }
+
+    /**
+     * Creates a new instance by a given Player who starts next game, whose
+     * bot is the given engine. Without engine the game takes no memory for
+     * a bot; its machine moves then have to be given one, see
+     * {@link #machineMove(Engine, CancellationToken)}, and the settings of
+     * the bot cannot be changed.
+     *
+     * @param started The player who starts next game.
+     * @param engine The bot of the game, {@code null} for none.
+     */
+    public BitBoardReversi(Player started, Engine engine) {
+        if (started == null) {
+            throw new IllegalArgumentException("Not existing player!");
+        }
+        level = STANDARD_LEVEL;
+        this.started = started;
+        next = started;
+        this.engine = engine;
+        setStartPosition(started);
+    }
+
+    /**
+     * Sets the start position corresponding to a given Player.
+     *
+     * @param started The player who's start position gets set.
+     */
+    private void setStartPosition(Player started) {
+        assert started != null : "Player must not be null!";
+        Position start = Position.start(started);
+        human = start.getHuman();
+        machine = start.getMachine();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Player getFirstPlayer() {
+        return started;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Player next() {
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board move(int row, int col) {
+        BitBoardReversi b = this.clone();
+        if (next == Player.MACHINE || gameOver()) {
+            throw new IllegalMoveExceptions();
+        } else if (row < 1 || col < 1 || row > SIZE || col > SIZE) {
+            throw new IllegalArgumentException("One or both of the params "
+                    + "aren't on the grid!");
+        } else if (possibleMove(row - 1, col - 1, Player.HUMAN)) {
+            b.flip(row - 1, col - 1, Player.HUMAN);
+        } else {
+            return null;
+        }
+        b.stats = null;
+        b.next = b.calculateNext(Player.HUMAN);
+        return b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board machineMove() {
+        return machineMove(new CancellationToken());
+    }
+
+    /**
+     * Executes the move of the machine like {@link #machineMove()}, as long
+     * as the given token is not cancelled. With a time limit the bot then
+     * makes the best move found so far, else the search is aborted.
+     *
+     * @param token The token to cancel the search from another thread.
+     * @return Returns the board after the move of the machine.
+     * @throws CancellationException If the search has been cancelled before
+     *         a move was found. This board is unchanged.
+     * @throws IllegalStateException If the game has no bot.
+     */
+    public BitBoardReversi machineMove(CancellationToken token) {
+        return machineMove(bot(), token);
+    }
+
+    /**
+     * Executes the move of the machine like
+     * {@link #machineMove(CancellationToken)}, but searches with the given
+     * engine instead of the bot of the game. The settings of the engine
+     * apply, only the level is the one of this board.
+     *
+     * @param engine The engine to search with.
+     * @param token The token to cancel the search from another thread.
+     * @return Returns the board after the move of the machine.
+     * @throws CancellationException If the search has been cancelled before
+     *         a move was found. This board is unchanged.
+     */
+    public BitBoardReversi machineMove(Engine engine,
+            CancellationToken token) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine must not be null!");
+        }
+        if (next == Player.HUMAN || gameOver()) {
+            throw new IllegalMoveExceptions();
+        }
+
+        // Search the best move for the bot on a copy of the position.
+        Position position = new Position(human, machine, next);
+        int square = engine.bestMove(position, level, token);
+
+        // Execute the best move on a copy of this board.
+        BitBoardReversi b = this.clone();
+        b.flip(square / SIZE, square % SIZE, Player.MACHINE);
+        b.stats = engine.getStats();
+        b.next = b.calculateNext(Player.MACHINE);
+        return b;
+    }
+
+    /**
+     * Executes a machine move on a standard executor shared by all games,
+     * see {@link #machineMoveAsync(Executor)}.
+     *
+     * @return A future of the new board with the move executed.
+     */
+    public CompletableFuture<Board> machineMoveAsync() {
+        return machineMoveAsync(MACHINE_MOVES);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The search stops within a few milliseconds if the future gets
+     * cancelled, completed by the caller or times out, e.g., by
+     * {@link CompletableFuture#orTimeout}. The statistics of the search are
+     * attached to the new board, see {@link #getSearchStats()}.
+     */
+    @Override
+    public CompletableFuture<Board> machineMoveAsync(Executor executor) {
+        return machineMoveAsync(executor, this::bot);
+    }
+
+    /**
+     * Executes a machine move on the given executor like
+     * {@link #machineMoveAsync(Executor)}, with the engine the given
+     * supplier returns on the thread of the search, e.g., one engine per
+     * thread of the executor kept in a {@link ThreadLocal}. Any failure of
+     * the search, errors included, completes the future exceptionally.
+     *
+     * @param executor The executor to search on.
+     * @param engines The supplier of the engine to search with.
+     * @return A future of the new board with the move executed.
+     */
+    public CompletableFuture<Board> machineMoveAsync(Executor executor,
+            Supplier<Engine> engines) {
+        CompletableFuture<Board> future = new CompletableFuture<>();
+        CancellationToken token = new CancellationToken();
+        future.whenComplete((board, failure) -> token.cancel());
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(machineMove(engines.get(), token));
+            } catch (Throwable e) {
+
+                // Also errors like StackOverflowError, else the future
+                // would never complete.
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Calculated the next player after a given player made his turn.
+     *
+     * @param player The player with the last move.
+     * @return Returns the player who's next.
+     */
+    private Player calculateNext(Player player) {
+        assert player != null : "Player must not be null!";
+
+        // Normally enemy gets next move, if not he has to miss.
+        Player next = getEnemy(player);
+        return legalMoves(next) != 0 ? next : player;
+    }
+
+    /**
+     * Method which flips the tiles for the given move.
+     *
+     * @param row    Row of the move.
+     * @param col    Column of the move.
+     * @param player Player which executed the move.
+     */
+    private void flip(int row, int col, Player player) {
+        assert possibleMove(row, col, player) : "Invalid move!";
+        long own = tilesOf(player);
+        long enemy = tilesOf(getEnemy(player));
+        long flipped = BitBoards.flips(own, enemy, row * SIZE + col);
+        own |= flipped | BitBoards.bit(row, col);
+        enemy &= ~flipped;
+        if (player == Player.HUMAN) {
+            human = own;
+            machine = enemy;
+        } else {
+            machine = own;
+            human = enemy;
+        }
+    }
+
+    /**
+     * Calculates if a given move is a possible move for a given Player
+     *
+     * @param row    Row of to be checked move.
+     * @param col    Column of the to be checked move.
+     * @param player Player of the to be checked move.
+     * @return Return whether it's a possible move or not.
+     */
+    private boolean possibleMove(int row, int col, Player player) {
+        assert player != null : "Player must not be null!";
+        return (legalMoves(player) & BitBoards.bit(row, col)) != 0;
+    }
+
+    /**
+     * Calculates the bitboard of all possible moves of the given Player.
+     *
+     * @param player Player who's possible moves gets calculated.
+     * @return Returns the bitboard of the possible moves.
+     */
+    private long legalMoves(Player player) {
+        assert player != null : "Player must not be null!";
+        return BitBoards.legalMoves(tilesOf(player),
+                tilesOf(getEnemy(player)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLevel(int level) {
+        if (level < 1 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Level must be between 1 and "
+                    + MAX_LEVEL + "!");
+        }
+        this.level = level;
+    }
+
+    /**
+     * Sets the time of the bot for a move. If set, the bot ignores its level
+     * and searches deeper and deeper until the time is up, then it makes the
+     * best move of the deepest completed search.
+     *
+     * @param millis The time in milliseconds, 0 to search with the depth of
+     *        the level.
+     */
+    public void setTimeLimit(long millis) {
+        bot().setTimeLimit(millis);
+    }
+
+    /**
+     * Sets the pool of threads the bot searches with if a parallel
+     * {@link SearchMode} is set.
+     *
+     * @param pool The pool, {@code null} to search on the calling thread.
+     */
+    public void setPool(ForkJoinPool pool) {
+        bot().setPool(pool);
+    }
+
+    /**
+     * Sets how the bot uses its pool of threads. With
+     * {@link SearchMode#ROOT_SPLIT} the chosen move stays the same as of the
+     * sequential search, with {@link SearchMode#LAZY_SMP} all threads search
+     * the whole tree and share their results in the transposition table.
+     *
+     * @param mode The type of search.
+     */
+    public void setSearchMode(SearchMode mode) {
+        bot().setSearchMode(mode);
+    }
+
+    /**
+     * Sets from which number of empty slots on the bot solves the game
+     * exactly, maximizing its final number of tiles instead of its score.
+     *
+     * @param empties The number of empty slots, 0 to never solve.
+     */
+    public void setEndgameEmpties(int empties) {
+        bot().setEndgameEmpties(empties);
+    }
+
+    /**
+     * Sets the book of prepared moves of the bot for the opening. Positions
+     * of the book are answered at once instead of searched, so the machine
+     * may choose differently than {@link Reversi}.
+     *
+     * @param book The book, {@code null} to always search.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        bot().setOpeningBook(book);
+    }
+
+    /**
+     * Sets the size of the transposition table of the bot, which keeps the
+     * searched positions over all moves of the game. The stored positions
+     * get lost.
+     *
+     * @param megabytes The size in megabytes, 0 to search without table.
+     */
+    public void setHashSize(int megabytes) {
+        bot().setHashSize(megabytes);
+    }
+
+    /**
+     * Lets the bot think on the time of the human: it searches its answers
+     * to the possible moves of the human in the background, so it can
+     * answer at once. Pondering stops with the next machine move of the
+     * game, or by {@link #stopPondering()}. Nothing happens if the human is
+     * not next.
+     */
+    public void startPondering() {
+        if (next == Player.HUMAN && !gameOver()) {
+            bot().startPondering(new Position(human, machine, next), level);
+        }
+    }
+
+    /**
+     * Stops the bot from thinking on the time of the human, e.g., when the
+     * game is left or a move is taken back.
+     */
+    public void stopPondering() {
+        if (engine != null) {
+            engine.stopPondering();
+        }
+    }
+
+    /**
+     * Gets the statistics of the search which chose the latest move.
+     *
+     * @return Returns the statistics if the machine made the latest move,
+     *         else {@code null}.
+     */
+    public SearchStats getSearchStats() {
+        return stats;
+    }
+
+    /**
+     * Adds a listener which gets informed about every following search of
+     * the bot of this game.
+     *
+     * @param listener The listener.
+     */
+    public void addSearchListener(SearchListener listener) {
+        bot().addSearchListener(listener);
+    }
+
+    /**
+     * Removes a listener of the searches of the bot.
+     *
+     * @param listener The listener, which is ignored if not added.
+     */
+    public void removeSearchListener(SearchListener listener) {
+        bot().removeSearchListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean gameOver() {
+        return legalMoves(Player.HUMAN) == 0
+                && legalMoves(Player.MACHINE) == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Player getWinner() {
+        if (getNumberOfHumanTiles() < getNumberOfMachineTiles()) {
+            return Player.MACHINE;
+        } else if (getNumberOfMachineTiles() < getNumberOfHumanTiles()) {
+            return Player.HUMAN;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumberOfHumanTiles() {
+        return Long.bitCount(human);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumberOfMachineTiles() {
+        return Long.bitCount(machine);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Player getSlot(int row, int col) {
+        if (row >= SIZE || col >= SIZE || row < 0 || col < 0) {
+            throw new IllegalArgumentException("One or both params aren't on "
+                    + "the grid");
+        }
+        long slot = BitBoards.bit(row, col);
+        if ((human & slot) != 0) {
+            return Player.HUMAN;
+        } else if ((machine & slot) != 0) {
+            return Player.MACHINE;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BitBoardReversi clone() {
+        try {
+            return (BitBoardReversi) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                Player slot = getSlot(i, j);
+                if (slot == Player.HUMAN) {
+                    sb.append('X');
+                } else if (slot == Player.MACHINE) {
+                    sb.append('O');
+                } else {
+                    sb.append('.');
+                }
+                if (j < SIZE - 1) {
+                    sb.append(" ");
+                }
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Calculates the score of the actual instance in view of the bot. Same
+     * as {@link Reversi#score()}.
+     *
+     * @return Returns the score of the actual instance.
+     */
+    public double score() {
+        return EVALUATOR.evaluate(new Position(human, machine, next));
+    }
+
+    /**
+     * Getter for the level.
+     *
+     * @return Returns the level of the bot.
+     */
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * Getter for the tiles of the human.
+     *
+     * @return Returns the bitboard of the tiles of the human.
+     */
+    long getHuman() {
+        return human;
+    }
+
+    /**
+     * Getter for the tiles of the machine.
+     *
+     * @return Returns the bitboard of the tiles of the machine.
+     */
+    long getMachine() {
+        return machine;
+    }
+
+    /**
+     * Creates a board of the same game with the given position, e.g., to
+     * restore an earlier one.
+     *
+     * @param human The bitboard of the tiles of the human.
+     * @param machine The bitboard of the tiles of the machine.
+     * @param next The Player who is next.
+     * @return Returns the new board, sharing the bot with this one.
+     */
+    BitBoardReversi at(long human, long machine, Player next) {
+        BitBoardReversi b = this.clone();
+        b.human = human;
+        b.machine = machine;
+        b.next = next;
+        b.stats = null;
+        return b;
+    }
+
+    /**
+     * Getter for the bot.
+     *
+     * @return Returns the engine of the game.
+     * @throws IllegalStateException If the game has no bot.
+     */
+    private Engine bot() {
+        if (engine == null) {
+            throw new IllegalStateException("Game without bot!");
+        }
+        return engine;
+    }
+
+    /**
+     * Gets the bitboard of the given Player.
+     *
+     * @param player The Player who's tiles are requested.
+     * @return Returns the bitboard of the tiles of the given Player.
+     */
+    private long tilesOf(Player player) {
+        return player == Player.HUMAN ? human : machine;
+    }
+
+    /**
+     * Calculates the enemy of the given Player.
+     *
+     * @param player The given Player, who's enemy gets calculated.
+     * @return Returns the enemy of the actual Player.
+     */
+    private static Player getEnemy(Player player) {
+        switch (player) {
+            case HUMAN:
+                return Player.MACHINE;
+            case MACHINE:
+                return Player.HUMAN;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+}
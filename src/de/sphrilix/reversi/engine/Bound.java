@@ -0,0 +1,22 @@
+package de.sphrilix.reversi.engine;
+
+/**
+ * Types of scores stored in the {@link TranspositionTable}.
+ */
+public enum Bound {
+
+    /**
+     * The exact score.
+     */
+    EXACT,
+
+    /**
+     * The exact score is at least the stored score.
+     */
+    LOWER,
+
+    /**
+     * The exact score is at most the stored score.
+     */
+    UPPER
+}
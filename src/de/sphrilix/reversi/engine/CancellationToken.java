@@ -0,0 +1,32 @@
+package de.sphrilix.reversi.engine;
+
+/**
+ * This class provides a token to cancel searches cooperatively. The caller
+ * hands a token to a search and cancels it from any thread; the search
+ * checks the token every few thousand nodes and then leaves, with all its
+ * positions restored. A token cannot be reset, every search which can be
+ * cancelled on its own needs a new one.
+ */
+public final class CancellationToken {
+
+    /**
+     * Whether the token has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Cancels all searches holding this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the token has been cancelled.
+     *
+     * @return Returns true if {@link #cancel()} has been called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
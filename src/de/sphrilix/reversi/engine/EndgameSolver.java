@@ -0,0 +1,423 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Player;
+import java.util.concurrent.CancellationException;
+
+/**
+ * This class provides an exact solver for the end of a game. Instead of the
+ * heuristic score it searches every line up to the end of the game and
+ * maximizes the final difference of tiles of the Player to move, the empty
+ * slots of a game ending early counting for the winner.
+ *
+ * Since the difference of tiles is symmetric, the solver is a negamax
+ * search on a pair of bitboards, the own and the enemy tiles. With many
+ * empty slots the moves are ordered fastest-first, i.e., moves which leave
+ * the enemy the fewest replies first. Close to the end the moves are taken
+ * in regions with an odd number of empty slots first (parity), and the last
+ * four empty slots are handled by dedicated routines without move
+ * generation.
+ */
+public class EndgameSolver {
+
+    /**
+     * The standard number of empty slots from which on the solver is used.
+     */
+    public static final int DEFAULT_EMPTIES = 14;
+
+    /**
+     * Number of empty slots from which on the moves are ordered
+     * fastest-first.
+     */
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+
+    /**
+     * Number of slots of the board.
+     */
+    private static final int SQUARES = Position.MAX_PLY;
+
+    /**
+     * Bitboards of the four quadrants of the board.
+     */
+    private static final long[] QUADRANTS = {0x000000000F0F0F0FL,
+            0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L};
+
+    /**
+     * Bitboard of the corners, preferred by the fastest-first order.
+     */
+    private static final long CORNERS = 0x8100000000000081L;
+
+    /**
+     * Thrown to leave a cancelled search, without stack trace.
+     */
+    private static final AlphaBetaSearch.AbortedException ABORTED =
+            new AlphaBetaSearch.AbortedException();
+
+    /**
+     * Moves of every number of empty slots, ordered before searching them.
+     */
+    private final int[][] moveLists = new int[SQUARES + 1][SQUARES];
+
+    /**
+     * Sort keys of the moves, indexed like {@link #moveLists}.
+     */
+    private final int[][] moveKeys = new int[SQUARES + 1][SQUARES];
+
+    /**
+     * Number of nodes visited by the latest search.
+     */
+    private long nodes;
+
+    /**
+     * Statistics of the latest search.
+     */
+    private SearchStats stats = SearchStats.NONE;
+
+    /**
+     * Token to cancel the search from another thread.
+     */
+    private CancellationToken token = new CancellationToken();
+
+    /**
+     * Searches the move of the Player who is next on the given position
+     * which leads to the best final difference of tiles. On equal results
+     * the move searched first wins. The position is unchanged.
+     *
+     * @param position The position to be solved, must not be over.
+     * @return Returns the square of the best move.
+     * @throws CancellationException If the token has been cancelled.
+     */
+    public int bestMove(Position position) {
+        long moves = position.legalMoves();
+        if (moves == 0) {
+            throw new IllegalArgumentException("No possible move!");
+        }
+        nodes = 0;
+        long start = System.nanoTime();
+        long own = position.tilesOf(position.next());
+        long enemy = position.tilesOf(enemyOf(position.next()));
+        int empties = position.getEmpties();
+        int count = orderMoves(own, enemy, moves, empties);
+        int[] list = moveLists[empties];
+        int bestMove = -1;
+        int alpha = -SQUARES - 1;
+        try {
+            for (int i = 0; i < count; i++) {
+                int square = list[i];
+                long flips = BitBoards.flips(own, enemy, square);
+                int score = -solve(enemy & ~flips,
+                        own | flips | (1L << square), -SQUARES - 1, -alpha,
+                        false);
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = square;
+                }
+            }
+        } catch (AlphaBetaSearch.AbortedException e) {
+            throw new CancellationException("Search cancelled!");
+        }
+        int result = position.next() == Player.MACHINE ? alpha : -alpha;
+        stats = new SearchStats(empties, result, System.nanoTime() - start,
+                nodes, 0, 0, 0, 0, 0, new int[] {bestMove});
+        return bestMove;
+    }
+
+    /**
+     * Calculates the final difference of tiles with perfect play of both
+     * Players.
+     *
+     * @param position The position to be solved.
+     * @return Returns the final number of tiles of the Player who is next
+     *         minus the ones of the enemy.
+     * @throws CancellationException If the token has been cancelled.
+     */
+    public int solve(Position position) {
+        nodes = 0;
+        long own = position.tilesOf(position.next());
+        long enemy = position.tilesOf(enemyOf(position.next()));
+        try {
+            return solve(own, enemy, -SQUARES - 1, SQUARES + 1, false);
+        } catch (AlphaBetaSearch.AbortedException e) {
+            throw new CancellationException("Search cancelled!");
+        }
+    }
+
+    /**
+     * Getter for the number of visited nodes.
+     *
+     * @return Returns the number of nodes visited by the latest search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the statistics of the latest search of the best move. The
+     * principal variation holds the best move only, the score is the final
+     * difference of tiles in view of the machine.
+     *
+     * @return Returns the statistics.
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Setter for the token which cancels the following searches.
+     *
+     * @param token The token.
+     */
+    public void setCancellationToken(CancellationToken token) {
+        if (token == null) {
+            throw new IllegalArgumentException();
+        }
+        this.token = token;
+    }
+
+    /**
+     * Calculates the final difference of tiles of the Player to move. The
+     * result is exact if it lies strictly between alpha and beta, else it is
+     * a bound.
+     *
+     * @param own The bitboard of the Player to move.
+     * @param enemy The bitboard of the enemy.
+     * @param alpha The result the Player to move is already assured of.
+     * @param beta The result the enemy is already assured of.
+     * @param passed Whether the enemy could not move before.
+     * @return Returns the difference of tiles.
+     */
+    private int solve(long own, long enemy, int alpha, int beta,
+            boolean passed) {
+        long empty = ~(own | enemy);
+        int empties = Long.bitCount(empty);
+        switch (empties) {
+            case 0:
+                nodes++;
+                return Long.bitCount(own) - Long.bitCount(enemy);
+            case 1:
+                return solveOne(own, enemy, Long.numberOfTrailingZeros(empty));
+            case 2:
+                return solveTwo(own, enemy, alpha, beta, empty, passed);
+            case 3:
+            case 4:
+                return solveFew(own, enemy, alpha, beta, empty, passed);
+            default:
+                break;
+        }
+        nodes++;
+        if (token.isCancelled()) {
+            throw ABORTED;
+        }
+        long moves = BitBoards.legalMoves(own, enemy);
+        if (moves == 0) {
+            if (passed) {
+                return Position.finalDifference(own, enemy);
+            }
+            return -solve(enemy, own, -beta, -alpha, true);
+        }
+        int count = orderMoves(own, enemy, moves, empties);
+        int[] list = moveLists[empties];
+        int bestScore = -SQUARES - 1;
+        for (int i = 0; i < count; i++) {
+            int square = list[i];
+            long flips = BitBoards.flips(own, enemy, square);
+            int score = -solve(enemy & ~flips, own | flips | (1L << square),
+                    -beta, -alpha, false);
+            if (score > bestScore) {
+                bestScore = score;
+                if (score >= beta) {
+                    break;
+                } else if (score > alpha) {
+                    alpha = score;
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * Calculates the final difference of tiles with one empty slot left.
+     *
+     * @param own The bitboard of the Player to move.
+     * @param enemy The bitboard of the enemy.
+     * @param square The empty slot.
+     * @return Returns the difference of tiles.
+     */
+    private int solveOne(long own, long enemy, int square) {
+        nodes++;
+        int diff = Long.bitCount(own) - Long.bitCount(enemy);
+        int flipped = Long.bitCount(BitBoards.flips(own, enemy, square));
+        if (flipped > 0) {
+            return diff + 2 * flipped + 1;
+        }
+        flipped = Long.bitCount(BitBoards.flips(enemy, own, square));
+        if (flipped > 0) {
+            return diff - 2 * flipped - 1;
+        }
+
+        // Nobody can move, the empty slot counts for the winner.
+        return diff > 0 ? diff + 1 : diff < 0 ? diff - 1 : 0;
+    }
+
+    /**
+     * Calculates the final difference of tiles with two empty slots left.
+     *
+     * @param own The bitboard of the Player to move.
+     * @param enemy The bitboard of the enemy.
+     * @param alpha The result the Player to move is already assured of.
+     * @param beta The result the enemy is already assured of.
+     * @param empty The bitboard of the empty slots.
+     * @param passed Whether the enemy could not move before.
+     * @return Returns the difference of tiles.
+     */
+    private int solveTwo(long own, long enemy, int alpha, int beta,
+            long empty, boolean passed) {
+        nodes++;
+        int first = Long.numberOfTrailingZeros(empty);
+        int second = Long.numberOfTrailingZeros(empty & (empty - 1));
+        int bestScore = -SQUARES - 1;
+        long flips = BitBoards.flips(own, enemy, first);
+        if (flips != 0) {
+            bestScore = -solveOne(enemy & ~flips, own | flips | (1L << first),
+                    second);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+        }
+        flips = BitBoards.flips(own, enemy, second);
+        if (flips != 0) {
+            int score = -solveOne(enemy & ~flips,
+                    own | flips | (1L << second), first);
+            if (score > bestScore) {
+                bestScore = score;
+            }
+        }
+        if (bestScore > -SQUARES - 1) {
+            return bestScore;
+        }
+        if (passed) {
+            return Position.finalDifference(own, enemy);
+        }
+        return -solveTwo(enemy, own, -beta, -alpha, empty, true);
+    }
+
+    /**
+     * Calculates the final difference of tiles with three or four empty
+     * slots left. The slots in regions with an odd number of empty slots
+     * are tried first.
+     *
+     * @param own The bitboard of the Player to move.
+     * @param enemy The bitboard of the enemy.
+     * @param alpha The result the Player to move is already assured of.
+     * @param beta The result the enemy is already assured of.
+     * @param empty The bitboard of the empty slots.
+     * @param passed Whether the enemy could not move before.
+     * @return Returns the difference of tiles.
+     */
+    private int solveFew(long own, long enemy, int alpha, int beta,
+            long empty, boolean passed) {
+        nodes++;
+        long odd = oddRegions(empty);
+        int bestScore = -SQUARES - 1;
+        boolean moved = false;
+        for (long squares = empty & odd, rest = empty & ~odd;
+                squares != 0 || rest != 0;) {
+            if (squares == 0) {
+                squares = rest;
+                rest = 0;
+            }
+            int square = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            long flips = BitBoards.flips(own, enemy, square);
+            if (flips == 0) {
+                continue;
+            }
+            moved = true;
+            int score = -solve(enemy & ~flips, own | flips | (1L << square),
+                    -beta, -alpha, false);
+            if (score > bestScore) {
+                bestScore = score;
+                if (score >= beta) {
+                    return bestScore;
+                } else if (score > alpha) {
+                    alpha = score;
+                }
+            }
+        }
+        if (moved) {
+            return bestScore;
+        }
+        if (passed) {
+            return Position.finalDifference(own, enemy);
+        }
+        return -solveFew(enemy, own, -beta, -alpha, empty, true);
+    }
+
+    /**
+     * Sorts the given moves into the move list of the given number of empty
+     * slots. With many empty slots the moves with the fewest replies of the
+     * enemy come first, corners preferred, else the moves in regions with an
+     * odd number of empty slots.
+     *
+     * @param own The bitboard of the Player to move.
+     * @param enemy The bitboard of the enemy.
+     * @param moves The bitboard of the possible moves.
+     * @param empties The number of empty slots.
+     * @return Returns the number of moves.
+     */
+    private int orderMoves(long own, long enemy, long moves, int empties) {
+        int[] list = moveLists[empties];
+        int[] keys = moveKeys[empties];
+        long odd = oddRegions(~(own | enemy));
+        int count = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            int square = Long.numberOfTrailingZeros(moves);
+            long placed = 1L << square;
+            int key = (odd & placed) != 0 ? 0 : 1;
+            if (empties >= FASTEST_FIRST_EMPTIES) {
+                long flips = BitBoards.flips(own, enemy, square);
+                int replies = BitBoards.mobility(enemy & ~flips,
+                        own | flips | placed);
+                key += 2 * replies - ((CORNERS & placed) != 0 ? 2 : 0);
+            }
+
+            // Insertion sort, stable for equal keys.
+            int i = count++;
+            while (i > 0 && keys[i - 1] > key) {
+                keys[i] = keys[i - 1];
+                list[i] = list[i - 1];
+                i--;
+            }
+            keys[i] = key;
+            list[i] = square;
+        }
+        return count;
+    }
+
+    /**
+     * Collects the empty slots of the quadrants with an odd number of empty
+     * slots.
+     *
+     * @param empty The bitboard of the empty slots.
+     * @return Returns the bitboard of those empty slots.
+     */
+    private static long oddRegions(long empty) {
+        long odd = 0;
+        for (long quadrant : QUADRANTS) {
+            if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                odd |= quadrant;
+            }
+        }
+        return odd;
+    }
+
+    /**
+     * Gets the enemy of the given Player.
+     *
+     * @param player The Player.
+     * @return Returns the other Player.
+     */
+    private static Player enemyOf(Player player) {
+        return player == Player.HUMAN ? Player.MACHINE : Player.HUMAN;
+    }
+}
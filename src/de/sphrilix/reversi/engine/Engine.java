@@ -0,0 +1,398 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class provides the bot of a game. It holds the settings of the search
+ * and the transposition table, which is kept over all moves of the game, and
+ * runs the search of the chosen {@link SearchMode}. Close to the end of the
+ * game the {@link EndgameSolver} takes over. The statistics of every search
+ * are kept and handed to the registered {@link SearchListener}s. With an
+ * {@link OpeningBook} set, positions of the book are answered from it
+ * without search.
+ *
+ * While the human thinks, the engine can ponder: it searches its answers to
+ * the replies of the human in the background, see
+ * {@link #startPondering(Position, int)}. If the human then makes a reply
+ * whose answer is ready, the engine answers at once.
+ */
+public class Engine {
+
+    /**
+     * Executor of the pondering of all engines. Its threads are daemons, so
+     * they do not keep the application alive.
+     */
+    private static final ExecutorService PONDERING =
+            Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Evaluator for the scores of the nodes.
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * Search on the calling thread.
+     */
+    private final AlphaBetaSearch search;
+
+    /**
+     * Solver for the end of the game.
+     */
+    private final EndgameSolver solver = new EndgameSolver();
+
+    /**
+     * Number of empty slots from which on the game is solved, 0 if never.
+     */
+    private int endgameEmpties = EndgameSolver.DEFAULT_EMPTIES;
+
+    /**
+     * Type of search.
+     */
+    private SearchMode mode = SearchMode.SEQUENTIAL;
+
+    /**
+     * Pool of threads for the parallel searches.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Size of the transposition table in megabytes, 0 if disabled.
+     */
+    private int hashSize = TranspositionTable.DEFAULT_SIZE_MB;
+
+    /**
+     * Table of searched positions, created by the first search.
+     */
+    private TranspositionTable table;
+
+    /**
+     * Time for a move in milliseconds, 0 to search with a fixed depth.
+     */
+    private long timeLimit;
+
+    /**
+     * Statistics of the latest search.
+     */
+    private SearchStats stats = SearchStats.NONE;
+
+    /**
+     * Book of prepared moves, {@code null} if none.
+     */
+    private OpeningBook book;
+
+    /**
+     * Background search on the time of the human, {@code null} if none.
+     * Swapped without the lock of the engine, so pondering can be stopped
+     * while a search runs.
+     */
+    private final AtomicReference<Ponderer> ponderer =
+            new AtomicReference<>();
+
+    /**
+     * Listeners informed about every search.
+     */
+    private final List<SearchListener> listeners =
+            new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new engine.
+     *
+     * @param evaluator The evaluator for the scores of the nodes.
+     */
+    public Engine(Evaluator evaluator) {
+        if (evaluator == null) {
+            throw new IllegalArgumentException();
+        }
+        this.evaluator = evaluator;
+        search = new AlphaBetaSearch(evaluator);
+    }
+
+    /**
+     * Searches the best move of the Player who is next on the given position.
+     * With a time limit the search deepens iteratively until the time is up,
+     * else it searches with the given depth. The root split search supports
+     * the fixed depth only, with a time limit it searches sequentially. The
+     * parallel searches fall back to the sequential one if no pool is set.
+     * With at most the set number of empty slots the game is solved exactly
+     * instead, ignoring level and time limit. The position is unchanged
+     * afterwards. The listeners get informed before this method returns.
+     * Pondering gets stopped, and if it prepared the answer to the given
+     * position with the same settings, that answer is returned. Positions
+     * in the opening book are answered from it first.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param level The depth of the search if there is no time limit.
+     * @return Returns the square of the best move.
+     */
+    public int bestMove(Position position, int level) {
+        return bestMove(position, level, new CancellationToken());
+    }
+
+    /**
+     * Searches the best move like {@link #bestMove(Position, int)}, as long
+     * as the given token is not cancelled. A search with a time limit
+     * answers with the best move of its deepest completed iteration when it
+     * gets cancelled, the other searches throw.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param level The depth of the search if there is no time limit.
+     * @param token The token to cancel the search from another thread.
+     * @return Returns the square of the best move.
+     * @throws CancellationException If the token has been cancelled before
+     *         a move was found. The position is restored then.
+     */
+    public synchronized int bestMove(Position position, int level,
+            CancellationToken token) {
+        if (token.isCancelled()) {
+            throw new CancellationException("Search cancelled!");
+        }
+        if (book != null && position.getEmpties() > endgameEmpties) {
+            long start = System.nanoTime();
+            int index = book.index(position);
+            if (index >= 0) {
+                stopPondering();
+                int square = OpeningBook.fromCanonical(position,
+                        book.getSquare(index));
+                finish(new SearchStats(book.getDepth(index),
+                        book.getScore(index), System.nanoTime() - start, 0,
+                        0, 0, 0, 0, 0, new int[] {square}));
+                return square;
+            }
+        }
+        Ponderer pondered = ponderer.getAndSet(null);
+        if (pondered != null) {
+            pondered.stop();
+            Ponderer.Answer answer = pondered.answer(position, level,
+                    endgameEmpties);
+            if (answer != null && (timeLimit == 0
+                    || position.getEmpties() <= endgameEmpties)) {
+                finish(answer.getStats());
+                return answer.getMove();
+            }
+        }
+        if (position.getEmpties() <= endgameEmpties) {
+            solver.setCancellationToken(token);
+            int bestMove = solver.bestMove(position);
+            finish(solver.getStats());
+            return bestMove;
+        }
+        startTable();
+        int bestMove;
+        if (mode == SearchMode.LAZY_SMP && pool != null) {
+            LazySmpSearch smp = new LazySmpSearch(evaluator, pool,
+                    pool.getParallelism());
+            smp.setTranspositionTable(table);
+            smp.setCancellationToken(token);
+            bestMove = timeLimit > 0 ? smp.bestMoveInTime(position, timeLimit)
+                    : smp.bestMove(position, level);
+            finish(smp.getStats());
+        } else if (mode == SearchMode.ROOT_SPLIT && pool != null
+                && timeLimit == 0) {
+            ParallelSearch parallel = new ParallelSearch(evaluator, pool);
+            parallel.setTranspositionTable(table);
+            parallel.setCancellationToken(token);
+            bestMove = parallel.bestMove(position, level);
+            finish(parallel.getStats());
+        } else {
+            search.setTranspositionTable(table);
+            search.setCancellationToken(token);
+            bestMove = timeLimit > 0
+                    ? search.bestMoveInTime(position, timeLimit)
+                    : search.bestMove(position, level);
+            finish(search.getStats());
+        }
+        return bestMove;
+    }
+
+    /**
+     * Starts to ponder on the given position, where the human is next: the
+     * answers to all replies get searched with the given level in the
+     * background, the expected reply first. Pondering of an earlier
+     * position gets stopped. With a time limit the answers are not used,
+     * but their searches fill the transposition table.
+     *
+     * @param position The position with the human next, which gets copied.
+     * @param level The depth of the searches of the answers.
+     */
+    public synchronized void startPondering(Position position, int level) {
+        if (position.gameOver() || position.next() != Player.HUMAN) {
+            throw new IllegalArgumentException("Human is not next!");
+        }
+        stopPondering();
+        startTable();
+        int[] line = stats.getPrincipalVariation();
+        Ponderer previous = ponderer.getAndSet(new Ponderer(evaluator, table,
+                position, level, endgameEmpties,
+                line.length > 1 ? line[1] : -1, PONDERING));
+        if (previous != null) {
+            previous.stop();
+        }
+    }
+
+    /**
+     * Stops pondering, if running, and discards the prepared answers. Returns
+     * within a few milliseconds, without waiting for a running search.
+     */
+    public void stopPondering() {
+        Ponderer previous = ponderer.getAndSet(null);
+        if (previous != null) {
+            previous.stop();
+        }
+    }
+
+    /**
+     * Setter for the type of search.
+     *
+     * @param mode The type of search.
+     */
+    public synchronized void setSearchMode(SearchMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException();
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * Sets from which number of empty slots on the game is solved exactly.
+     * The time of the solver grows by a factor of about three per empty
+     * slot.
+     *
+     * @param empties The number of empty slots, 0 to never solve.
+     */
+    public synchronized void setEndgameEmpties(int empties) {
+        if (empties < 0 || empties > Position.MAX_PLY) {
+            throw new IllegalArgumentException("Empties must be between 0 and "
+                    + Position.MAX_PLY + "!");
+        }
+        endgameEmpties = empties;
+    }
+
+    /**
+     * Sets the book of prepared moves for the opening.
+     *
+     * @param book The book, {@code null} to always search.
+     */
+    public synchronized void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Setter for the pool of the parallel searches. The Lazy SMP search runs
+     * one helper per thread of the pool.
+     *
+     * @param pool The pool, {@code null} to search on the calling thread.
+     */
+    public synchronized void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the size of the transposition table. The stored positions get
+     * lost.
+     *
+     * @param megabytes The size in megabytes, 0 to search without table.
+     */
+    public synchronized void setHashSize(int megabytes) {
+        if (megabytes < 0) {
+            throw new IllegalArgumentException("Size must not be negative!");
+        }
+        hashSize = megabytes;
+        table = null;
+    }
+
+    /**
+     * Setter for the time of a move.
+     *
+     * @param millis The time in milliseconds, 0 to search with a fixed
+     *        depth.
+     */
+    public synchronized void setTimeLimit(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time must not be negative!");
+        }
+        timeLimit = millis;
+    }
+
+    /**
+     * Adds a listener which gets informed about every following search.
+     *
+     * @param listener The listener.
+     */
+    public void addSearchListener(SearchListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException();
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener The listener, which is ignored if not added.
+     */
+    public void removeSearchListener(SearchListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Getter for the statistics of the latest search.
+     *
+     * @return Returns the statistics of the latest search.
+     */
+    public synchronized SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Getter for the number of visited nodes.
+     *
+     * @return Returns the number of nodes visited by the latest search.
+     */
+    public synchronized long getNodes() {
+        return stats.getNodes();
+    }
+
+    /**
+     * Getter for the depth of the latest search.
+     *
+     * @return Returns the depth of the latest completed search.
+     */
+    public synchronized int getDepth() {
+        return stats.getDepth();
+    }
+
+    /**
+     * Creates the table if needed and starts a new generation of it.
+     */
+    private void startTable() {
+        if (table == null && hashSize > 0) {
+            table = new TranspositionTable(hashSize);
+        }
+        if (table != null) {
+            table.newSearch();
+        }
+    }
+
+    /**
+     * Keeps the statistics of a finished search and informs the listeners.
+     *
+     * @param latest The statistics of the search.
+     */
+    private void finish(SearchStats latest) {
+        stats = latest;
+        for (SearchListener listener : listeners) {
+            listener.searchFinished(latest);
+        }
+    }
+}
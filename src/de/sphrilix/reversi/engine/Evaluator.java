@@ -0,0 +1,40 @@
+package de.sphrilix.reversi.engine;
+
+/**
+ * Interface for the static evaluation of a position by the machine search.
+ */
+public interface Evaluator {
+
+    /**
+     * Evaluates the given position in view of the machine. The higher the
+     * score, the better the position for the machine.
+     *
+     * @param position The position to be evaluated.
+     * @return Returns the score of the position.
+     */
+    double evaluate(Position position);
+
+    /**
+     * Checks if the scores of the inner nodes of the search tree add up, as
+     * they do for the score of {@link de.sphrilix.reversi.model.Reversi}.
+     * Otherwise only the leaves are evaluated, and a node gets the best
+     * score of its children.
+     *
+     * @return {@code true} if and only if every node adds its own score.
+     */
+    default boolean accumulates() {
+        return true;
+    }
+
+    /**
+     * Checks if the scores do not change when the board gets mirrored or
+     * rotated, see {@link Symmetry}. Only then the search may skip moves
+     * which are symmetric to another move.
+     *
+     * @return {@code true} if and only if symmetric positions get the same
+     *         score.
+     */
+    default boolean isSymmetric() {
+        return false;
+    }
+}
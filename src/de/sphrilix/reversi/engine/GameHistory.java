@@ -0,0 +1,307 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.IllegalMoveExceptions;
+import de.sphrilix.reversi.model.Player;
+import java.util.Arrays;
+
+/**
+ * This class keeps the moves of a game on a single {@link BitBoardReversi},
+ * so moves can be taken back and made again without limit and any earlier
+ * or later position can be restored. Instead of a board per move only the
+ * square of every move, the Player who made it and the bitboard of the
+ * tiles it flipped get stored, nine bytes per move. Taking back or making
+ * again a move is a few bitboard operations; the board of the new position
+ * is a fresh copy sharing the bot of the game, see
+ * {@link BitBoardReversi#clone()}.
+ *
+ * A move added after taking back moves drops the moves which could have
+ * been made again, like the history of an editor.
+ */
+public final class GameHistory {
+
+    /**
+     * Bit of a stored move which is set if the machine made it.
+     */
+    private static final int MACHINE_MOVE = 0x40;
+
+    /**
+     * Mask of the square of a stored move.
+     */
+    private static final int SQUARE = 0x3F;
+
+    /**
+     * Board of the actual position.
+     */
+    private BitBoardReversi board;
+
+    /**
+     * Moves of the game, the square and whether the machine made it.
+     */
+    private byte[] moves = new byte[Board.SIZE * Board.SIZE];
+
+    /**
+     * Tiles flipped by the moves.
+     */
+    private long[] flips = new long[Board.SIZE * Board.SIZE];
+
+    /**
+     * Number of moves made on the actual position.
+     */
+    private int ply;
+
+    /**
+     * Number of moves which can be made, including the ones taken back.
+     */
+    private int length;
+
+    /**
+     * Creates a new history of a game starting on the given board.
+     *
+     * @param start The board at the start of the history.
+     */
+    public GameHistory(BitBoardReversi start) {
+        if (start == null) {
+            throw new IllegalArgumentException("Board must not be null!");
+        }
+        board = start;
+    }
+
+    /**
+     * Getter for the actual board.
+     *
+     * @return Returns the board of the actual position.
+     */
+    public BitBoardReversi getBoard() {
+        return board;
+    }
+
+    /**
+     * Adds the board after the next move and drops the moves taken back.
+     *
+     * @param board The board after the move, which becomes the actual one.
+     * @throws IllegalArgumentException If the board is no
+     *         {@link BitBoardReversi} or does not follow the actual one by a
+     *         single move.
+     */
+    public void add(Board board) {
+        if (!(board instanceof BitBoardReversi)) {
+            throw new IllegalArgumentException("Board of another kind!");
+        }
+        BitBoardReversi next = (BitBoardReversi) board;
+        long before = this.board.getHuman() | this.board.getMachine();
+        long placed = (next.getHuman() | next.getMachine()) & ~before;
+        if (Long.bitCount(placed) != 1
+                || ((next.getHuman() | next.getMachine()) & before)
+                        != before) {
+            throw new IllegalArgumentException("No move of the board!");
+        }
+        boolean machine = (next.getMachine() & placed) != 0;
+        grow();
+        moves[ply] = (byte) (Long.numberOfTrailingZeros(placed)
+                | (machine ? MACHINE_MOVE : 0));
+        flips[ply] = (this.board.getHuman() ^ next.getHuman()) & ~placed;
+        ply++;
+        length = ply;
+        this.board = next;
+    }
+
+    /**
+     * Makes a move of the Player who is next on the actual board and drops
+     * the moves taken back, e.g., to replay a stored game without search.
+     *
+     * @param square The square of the move, i.e., {@code row * SIZE + col}.
+     * @return Returns the board after the move.
+     * @throws IllegalArgumentException If the move is not possible.
+     */
+    BitBoardReversi play(int square) {
+        Player mover = board.next();
+        long own = mover == Player.MACHINE ? board.getMachine()
+                : board.getHuman();
+        long enemy = mover == Player.MACHINE ? board.getHuman()
+                : board.getMachine();
+        if (square < 0 || square >= Board.SIZE * Board.SIZE
+                || (BitBoards.legalMoves(own, enemy) & (1L << square)) == 0) {
+            throw new IllegalArgumentException("Invalid move!");
+        }
+        grow();
+        moves[ply] = (byte) (square
+                | (mover == Player.MACHINE ? MACHINE_MOVE : 0));
+        flips[ply] = BitBoards.flips(own, enemy, square);
+        length = ply + 1;
+        return redo();
+    }
+
+    /**
+     * Takes back the latest move.
+     *
+     * @return Returns the board before the move.
+     * @throws IllegalMoveExceptions If there is no move to take back.
+     */
+    public BitBoardReversi undo() {
+        if (ply == 0) {
+            throw new IllegalMoveExceptions("No move to undo.");
+        }
+        ply--;
+        long placed = 1L << (moves[ply] & SQUARE);
+        long flipped = flips[ply];
+        long human = board.getHuman();
+        long machine = board.getMachine();
+        if (getMover(ply) == Player.MACHINE) {
+            machine &= ~(placed | flipped);
+            human |= flipped;
+        } else {
+            human &= ~(placed | flipped);
+            machine |= flipped;
+        }
+        board = board.at(human, machine, getMover(ply));
+        return board;
+    }
+
+    /**
+     * Makes again the latest move taken back.
+     *
+     * @return Returns the board after the move.
+     * @throws IllegalMoveExceptions If there is no move to make again.
+     */
+    public BitBoardReversi redo() {
+        if (ply == length) {
+            throw new IllegalMoveExceptions("No move to redo.");
+        }
+        long placed = 1L << (moves[ply] & SQUARE);
+        long flipped = flips[ply];
+        long human = board.getHuman();
+        long machine = board.getMachine();
+        Player next;
+        if (getMover(ply) == Player.MACHINE) {
+            machine |= placed | flipped;
+            human &= ~flipped;
+            next = BitBoards.legalMoves(human, machine) != 0 ? Player.HUMAN
+                    : Player.MACHINE;
+        } else {
+            human |= placed | flipped;
+            machine &= ~flipped;
+            next = BitBoards.legalMoves(machine, human) != 0 ? Player.MACHINE
+                    : Player.HUMAN;
+        }
+        ply++;
+        board = board.at(human, machine, next);
+        return board;
+    }
+
+    /**
+     * Restores the position after the given number of moves.
+     *
+     * @param target The number of moves, at most {@link #getLength()}.
+     * @return Returns the board of the position.
+     * @throws IllegalArgumentException If the number is out of range.
+     */
+    public BitBoardReversi seek(int target) {
+        if (target < 0 || target > length) {
+            throw new IllegalArgumentException("Invalid number of moves!");
+        }
+        while (ply > target) {
+            undo();
+        }
+        while (ply < target) {
+            redo();
+        }
+        return board;
+    }
+
+    /**
+     * Getter for the number of moves made.
+     *
+     * @return Returns the number of moves made on the actual position.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Getter for the length.
+     *
+     * @return Returns the number of moves including the ones taken back.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets a move of the history.
+     *
+     * @param index The number of moves before it.
+     * @return Returns the square of the move, i.e., {@code row * SIZE +
+     *         col}.
+     */
+    public int getMove(int index) {
+        checkIndex(index);
+        return moves[index] & SQUARE;
+    }
+
+    /**
+     * Gets the Player who made a move of the history.
+     *
+     * @param index The number of moves before it.
+     * @return Returns the Player who made the move.
+     */
+    public Player getMover(int index) {
+        checkIndex(index);
+        return (moves[index] & MACHINE_MOVE) != 0 ? Player.MACHINE
+                : Player.HUMAN;
+    }
+
+    /**
+     * Finds the latest move of the given Player before the actual
+     * position.
+     *
+     * @param mover The Player.
+     * @return Returns the number of moves before it, -1 if there is none.
+     */
+    public int previousMove(Player mover) {
+        for (int i = ply - 1; i >= 0; i--) {
+            if (getMover(i) == mover) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first move of the given Player after the actual position
+     * which can be made again.
+     *
+     * @param mover The Player.
+     * @return Returns the number of moves before it, -1 if there is none.
+     */
+    public int nextMove(Player mover) {
+        for (int i = ply; i < length; i++) {
+            if (getMover(i) == mover) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes room for the move after the actual position.
+     */
+    private void grow() {
+        if (ply == moves.length) {
+            moves = Arrays.copyOf(moves, ply * 2);
+            flips = Arrays.copyOf(flips, ply * 2);
+        }
+    }
+
+    /**
+     * Checks that a move is in the history.
+     *
+     * @param index The number of moves before it.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IllegalArgumentException("Invalid number of moves!");
+        }
+    }
+}
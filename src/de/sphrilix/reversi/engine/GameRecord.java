@@ -0,0 +1,213 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import java.util.Arrays;
+
+/**
+ * This class holds a finished or running game as the list of its moves, one
+ * byte per move, together with the Player who started it and the level of
+ * the bot. Passes are not recorded, they follow from the moves like in
+ * {@link Position#makeMove(int)}, and so does every position of the game,
+ * see {@link #position(int)}. Records get stored by a
+ * {@link GameRecordWriter} and read by a {@link GameRecordReader}.
+ * Instances are immutable.
+ */
+public final class GameRecord {
+
+    /**
+     * Largest level which can be recorded.
+     */
+    public static final int MAX_LEVEL = 0xFF;
+
+    /**
+     * Largest number of moves of a game, one for every slot which is empty
+     * at the start.
+     */
+    public static final int MAX_MOVES = Board.SIZE * Board.SIZE - 4;
+
+    /**
+     * Player who started the game.
+     */
+    private final Player started;
+
+    /**
+     * Level of the bot.
+     */
+    private final int level;
+
+    /**
+     * Squares of the moves, see {@link Position#makeMove(int)}.
+     */
+    private final byte[] moves;
+
+    /**
+     * Creates a new record of the given moves.
+     *
+     * @param started The Player who started the game.
+     * @param level The level of the bot.
+     * @param squares The squares of the moves in the order they were made.
+     * @throws IllegalArgumentException If the player does not exist, the
+     *         level is out of range or the moves are not possible.
+     */
+    public GameRecord(Player started, int level, int[] squares) {
+        this(started, level, toBytes(squares));
+        position(squares.length);
+    }
+
+    /**
+     * Creates a new record of the given moves, which are taken over. The
+     * moves are only checked for being on the grid, whether they are
+     * possible shows when they get replayed. Archives hold checked records
+     * only, so reading them need not replay every game.
+     *
+     * @param started The Player who started the game.
+     * @param level The level of the bot.
+     * @param moves The squares of the moves.
+     * @throws IllegalArgumentException If the player does not exist, the
+     *         level is out of range, there are more than {@link #MAX_MOVES}
+     *         moves or a move is not on the grid.
+     */
+    GameRecord(Player started, int level, byte[] moves) {
+        if (started == null) {
+            throw new IllegalArgumentException("Not existing player!");
+        }
+        if (level < 0 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Invalid level!");
+        }
+        if (moves.length > MAX_MOVES) {
+            throw new IllegalArgumentException("Too many moves!");
+        }
+        for (byte square : moves) {
+            if (square < 0 || square >= Board.SIZE * Board.SIZE) {
+                throw new IllegalArgumentException("Slot not on grid!");
+            }
+        }
+        this.started = started;
+        this.level = level;
+        this.moves = moves;
+    }
+
+    /**
+     * Getter for the Player who started the game.
+     *
+     * @return Returns the Player who made the first move.
+     */
+    public Player getStarted() {
+        return started;
+    }
+
+    /**
+     * Getter for the level.
+     *
+     * @return Returns the level of the bot.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Getter for the number of moves.
+     *
+     * @return Returns the number of recorded moves.
+     */
+    public int getLength() {
+        return moves.length;
+    }
+
+    /**
+     * Gets a move of the game.
+     *
+     * @param ply The number of moves before it.
+     * @return Returns the square of the move.
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * Replays the game up to the given move.
+     *
+     * @param plies The number of moves to be made.
+     * @return Returns the position after the moves.
+     * @throws IllegalArgumentException If the number is out of range or a
+     *         move is not possible.
+     */
+    public Position position(int plies) {
+        if (plies < 0 || plies > moves.length) {
+            throw new IllegalArgumentException("Invalid number of moves!");
+        }
+        Position position = Position.start(started);
+        for (int ply = 0; ply < plies; ply++) {
+            int square = moves[ply];
+            if ((position.legalMoves() & (1L << square)) == 0) {
+                throw new IllegalArgumentException("Invalid move " + ply
+                        + "!");
+            }
+            position.makeMove(square);
+        }
+        return position;
+    }
+
+    /**
+     * Gets the moves as stored, for the writer.
+     *
+     * @return Returns the squares of the moves, which must not be changed.
+     */
+    byte[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof GameRecord)) {
+            return false;
+        }
+        GameRecord other = (GameRecord) o;
+        return started == other.started && level == other.level
+                && Arrays.equals(moves, other.moves);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return (started.hashCode() * 31 + level) * 31
+                + Arrays.hashCode(moves);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(started).append(' ').append(level);
+        for (byte square : moves) {
+            sb.append(' ').append(Tournament.notation(square));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Converts squares into bytes.
+     *
+     * @param squares The squares.
+     * @return Returns the squares as bytes.
+     * @throws IllegalArgumentException If a square is not on the grid.
+     */
+    private static byte[] toBytes(int[] squares) {
+        byte[] bytes = new byte[squares.length];
+        for (int i = 0; i < squares.length; i++) {
+            if (squares[i] < 0 || squares[i] >= Board.SIZE * Board.SIZE) {
+                throw new IllegalArgumentException("Slot not on grid!");
+            }
+            bytes[i] = (byte) squares[i];
+        }
+        return bytes;
+    }
+}
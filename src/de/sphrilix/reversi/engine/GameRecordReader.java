@@ -0,0 +1,171 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class reads the games of an archive one after another, so archives
+ * of millions of games can be processed without loading them. An archive
+ * is written by a {@link GameRecordWriter}.
+ *
+ * The file starts with a header of the magic number and the version. Every
+ * game follows as a byte of the Player who started it, 0 for the human and
+ * 1 for the machine, a byte of the level, a byte of the number of moves and
+ * a byte per move with its square, see {@link Position#makeMove(int)}.
+ *
+ * Usage: {@code GameRecordReader archive}, which prints the games.
+ */
+public final class GameRecordReader implements Iterator<GameRecord>,
+        Closeable {
+
+    /**
+     * Magic number of an archive.
+     */
+    static final int MAGIC = 0x52564752;
+
+    /**
+     * Version of the archive.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Size of a buffer of the archive in bytes.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Stream of the archive.
+     */
+    private final DataInputStream in;
+
+    /**
+     * First byte of the next game, -1 at the end of the archive and -2 if
+     * not read yet.
+     */
+    private int lookahead = -2;
+
+    /**
+     * Creates a new reader of the archive in the given stream and reads its
+     * header.
+     *
+     * @param in The stream, which gets closed with the reader.
+     * @throws IOException If the stream cannot be read or is no archive.
+     */
+    public GameRecordReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in instanceof BufferedInputStream ? in
+                : new BufferedInputStream(in, BUFFER_SIZE));
+        try {
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a game archive!");
+            }
+            if (this.in.readInt() != VERSION) {
+                throw new IOException("Unknown version of the game archive!");
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a game archive!", e);
+        }
+    }
+
+    /**
+     * Opens an archive for reading.
+     *
+     * @param file The archive.
+     * @return Returns the reader.
+     * @throws IOException If the file cannot be read or is no archive.
+     */
+    public static GameRecordReader open(Path file) throws IOException {
+        return new GameRecordReader(Files.newInputStream(file));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException If the archive cannot be read.
+     */
+    @Override
+    public boolean hasNext() {
+        if (lookahead == -2) {
+            try {
+                lookahead = in.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return lookahead >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException If the archive cannot be read, is
+     *         truncated or holds an invalid game.
+     */
+    @Override
+    public GameRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int first = lookahead;
+        lookahead = -2;
+        try {
+            if (first > 1) {
+                throw new IOException("Not existing player!");
+            }
+            int level = in.readUnsignedByte();
+            byte[] moves = new byte[in.readUnsignedByte()];
+            in.readFully(moves);
+            return new GameRecord(first == 0 ? Player.HUMAN : Player.MACHINE,
+                    level, moves);
+        } catch (EOFException e) {
+            throw new UncheckedIOException(new IOException(
+                    "Game archive is truncated!", e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalArgumentException e) {
+            throw new UncheckedIOException(new IOException(
+                    "Invalid game in archive!", e));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Prints the games of an archive, one per line.
+     *
+     * @param args The archive.
+     * @throws IOException If the archive cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: GameRecordReader archive");
+            System.exit(1);
+        }
+        try (GameRecordReader reader = open(Paths.get(args[0]))) {
+            while (reader.hasNext()) {
+                System.out.println(reader.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class appends games to an archive in the format read by a
+ * {@link GameRecordReader}, three bytes and a byte per move for every game.
+ * The games are buffered; they are in the archive once the writer is
+ * flushed or closed. A writer may be shared by threads.
+ */
+public final class GameRecordWriter implements Closeable, Flushable {
+
+    /**
+     * Stream of the archive.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Number of games written.
+     */
+    private long count;
+
+    /**
+     * Creates a new writer of a new archive in the given stream and writes
+     * its header.
+     *
+     * @param out The stream, which gets closed with the writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public GameRecordWriter(OutputStream out) throws IOException {
+        this(out, true);
+    }
+
+    /**
+     * Creates a new writer on the given stream.
+     *
+     * @param out The stream.
+     * @param header Whether the header has to be written.
+     * @throws IOException If the stream cannot be written.
+     */
+    private GameRecordWriter(OutputStream out, boolean header)
+            throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out,
+                GameRecordReader.BUFFER_SIZE));
+        if (header) {
+            this.out.writeInt(GameRecordReader.MAGIC);
+            this.out.writeInt(GameRecordReader.VERSION);
+        }
+    }
+
+    /**
+     * Opens an archive for appending games, a missing or empty file gets
+     * created as an empty archive. The games of the archive are walked
+     * through once; a game cut off at the end, e.g., by a crash while
+     * writing, gets dropped, so the new games follow the last complete one.
+     *
+     * @param file The archive.
+     * @return Returns the writer.
+     * @throws IOException If the file cannot be written, is no archive or
+     *         holds an invalid game.
+     */
+    public static GameRecordWriter append(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size > 0) {
+                ByteBuffer header = ByteBuffer.allocate(
+                        GameRecordReader.HEADER_SIZE);
+                int read = 0;
+                while (header.hasRemaining() && read >= 0) {
+                    read = channel.read(header, header.position());
+                }
+                if (header.hasRemaining()
+                        || header.getInt(0) != GameRecordReader.MAGIC) {
+                    throw new IOException("Not a game archive!");
+                }
+                if (header.getInt(4) != GameRecordReader.VERSION) {
+                    throw new IOException(
+                            "Unknown version of the game archive!");
+                }
+                long end = completeLength(channel, size);
+                if (end < size) {
+                    channel.truncate(end);
+                }
+                channel.position(end);
+            }
+            return new GameRecordWriter(Channels.newOutputStream(channel),
+                    size == 0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Walks through the games of an archive.
+     *
+     * @param channel The channel of the archive, positioned anywhere.
+     * @param size The size of the archive in bytes.
+     * @return Returns the length of the archive up to the end of its last
+     *         complete game.
+     * @throws IOException If the archive cannot be read or holds an
+     *         invalid game.
+     */
+    private static long completeLength(FileChannel channel, long size)
+            throws IOException {
+        channel.position(GameRecordReader.HEADER_SIZE);
+
+        // Not closed, that would close the channel.
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel),
+                GameRecordReader.BUFFER_SIZE));
+        byte[] moves = new byte[GameRecord.MAX_MOVES];
+        long end = GameRecordReader.HEADER_SIZE;
+        while (end + 3 <= size) {
+            int started = in.readUnsignedByte();
+            in.readUnsignedByte();
+            int length = in.readUnsignedByte();
+            if (started > 1 || length > GameRecord.MAX_MOVES) {
+                throw new IOException("Invalid game in archive!");
+            }
+            if (end + 3 + length > size) {
+                break;
+            }
+            in.readFully(moves, 0, length);
+            for (int i = 0; i < length; i++) {
+                if (moves[i] < 0 || moves[i] >= Board.SIZE * Board.SIZE) {
+                    throw new IOException("Invalid game in archive!");
+                }
+            }
+            end += 3 + length;
+        }
+        return end;
+    }
+
+    /**
+     * Appends a game.
+     *
+     * @param game The game.
+     * @throws IOException If the archive cannot be written.
+     */
+    public synchronized void write(GameRecord game) throws IOException {
+        byte[] moves = game.getMoves();
+        out.writeByte(game.getStarted() == Player.HUMAN ? 0 : 1);
+        out.writeByte(game.getLevel());
+        out.writeByte(moves.length);
+        out.write(moves);
+        count++;
+    }
+
+    /**
+     * Getter for the number of games written.
+     *
+     * @return Returns the number of games appended by this writer.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,416 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class provides a snapshot of a game, so it can be saved and resumed
+ * later or in another process. A snapshot holds the Player who started the
+ * game, the level of the bot, the actual position and all moves of the
+ * {@link GameHistory}, including the ones taken back, in a few dozen
+ * bytes. The fields are read straight from the buffer of the snapshot
+ * without parsing it; only {@link #restore(BitBoardReversi)} replays the
+ * moves. Instances are immutable.
+ *
+ * A snapshot starts with the magic number and the version, followed by a
+ * byte each of the Player who started, the level, the Player who is next,
+ * the number of moves made and the number of all moves, three bytes of
+ * padding and the bitboards of the tiles of the human and the machine on
+ * the actual position. Then every move follows as a byte of its square,
+ * with bit 6 set for a move of the machine. Players are 0 for the human and
+ * 1 for the machine.
+ */
+public final class GameSnapshot {
+
+    /**
+     * Magic number of a snapshot.
+     */
+    static final int MAGIC = 0x52565353;
+
+    /**
+     * Version of the snapshot.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Offset of the Player who started.
+     */
+    private static final int STARTED = 8;
+
+    /**
+     * Offset of the level.
+     */
+    private static final int LEVEL = 9;
+
+    /**
+     * Offset of the Player who is next.
+     */
+    private static final int NEXT = 10;
+
+    /**
+     * Offset of the number of moves made.
+     */
+    private static final int PLY = 11;
+
+    /**
+     * Offset of the number of all moves.
+     */
+    private static final int LENGTH = 12;
+
+    /**
+     * Offset of the tiles of the human.
+     */
+    private static final int HUMAN = 16;
+
+    /**
+     * Offset of the tiles of the machine.
+     */
+    private static final int MACHINE = 24;
+
+    /**
+     * Bit of a move which is set if the machine made it.
+     */
+    private static final int MACHINE_MOVE = 0x40;
+
+    /**
+     * Content of the snapshot.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a new snapshot on the given content.
+     *
+     * @param buffer The content, from the start of the header.
+     * @throws IOException If the content has a wrong format.
+     */
+    private GameSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot!");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown version of the snapshot!");
+        }
+        this.buffer = buffer;
+        if (buffer.capacity() != HEADER_SIZE + getLength()
+                || getPly() > getLength() || buffer.get(STARTED) >>> 1 != 0
+                || buffer.get(NEXT) >>> 1 != 0
+                || getLevel() < 1 || getLevel() > BitBoardReversi.MAX_LEVEL
+                || (getHuman() & getMachine()) != 0) {
+            throw new IOException("Snapshot is corrupt!");
+        }
+    }
+
+    /**
+     * Creates a snapshot of the given content, without copying it.
+     *
+     * @param buffer The content, from the start of the header, which must
+     *        not be changed while the snapshot is used.
+     * @return Returns the snapshot.
+     * @throws IOException If the content has a wrong format.
+     */
+    public static GameSnapshot wrap(ByteBuffer buffer) throws IOException {
+        return new GameSnapshot(buffer.slice());
+    }
+
+    /**
+     * Reads a snapshot from the given file.
+     *
+     * @param file The file.
+     * @return Returns the snapshot.
+     * @throws IOException If the file cannot be read or has a wrong format.
+     */
+    public static GameSnapshot read(Path file) throws IOException {
+        return wrap(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Takes a snapshot of a game with the level of its board.
+     *
+     * @param history The history of the game.
+     * @return Returns the content of the snapshot.
+     */
+    public static byte[] toBytes(GameHistory history) {
+        return toBytes(history, history.getBoard().getLevel());
+    }
+
+    /**
+     * Takes a snapshot of a game with the given level.
+     *
+     * @param history The history of the game.
+     * @param level The level of the bot to be stored.
+     * @return Returns the content of the snapshot.
+     * @throws IllegalArgumentException If the level is out of range.
+     */
+    public static byte[] toBytes(GameHistory history, int level) {
+        if (level < 1 || level > BitBoardReversi.MAX_LEVEL) {
+            throw new IllegalArgumentException("Invalid level!");
+        }
+        BitBoardReversi board = history.getBoard();
+        int length = history.getLength();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.put(STARTED, toByte(board.getFirstPlayer()));
+        buffer.put(LEVEL, (byte) level);
+        buffer.put(NEXT, toByte(board.next()));
+        buffer.putLong(HUMAN, board.getHuman());
+        buffer.putLong(MACHINE, board.getMachine());
+        buffer.put(PLY, (byte) history.getPly());
+        buffer.put(LENGTH, (byte) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put(HEADER_SIZE + i, (byte) (history.getMove(i)
+                    | (history.getMover(i) == Player.MACHINE ? MACHINE_MOVE
+                            : 0)));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Saves a snapshot of a game with the level of its board to the given
+     * file, see {@link #save(GameHistory, int, Path)}.
+     *
+     * @param history The history of the game.
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(GameHistory history, Path file)
+            throws IOException {
+        save(history, history.getBoard().getLevel(), file);
+    }
+
+    /**
+     * Saves a snapshot of a game with the given level to the given file.
+     * The snapshot is written to a temporary file next to it first, which
+     * then replaces the file in one step, so a crash never leaves a partly
+     * written snapshot.
+     *
+     * @param history The history of the game.
+     * @param level The level of the bot to be stored.
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If the level is out of range.
+     */
+    public static void save(GameHistory history, int level, Path file)
+            throws IOException {
+        byte[] content = toBytes(history, level);
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory,
+                file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, content);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Restores the game onto a new board, which gets the level of the
+     * snapshot.
+     *
+     * @param start A board at the start of a game started by the Player of
+     *        the snapshot, e.g., set up with the pool of the bot.
+     * @return Returns the history of the game, on the actual position.
+     * @throws IllegalArgumentException If the board has another Player who
+     *         started or is not at the start.
+     * @throws IOException If the moves of the snapshot are not possible.
+     */
+    public GameHistory restore(BitBoardReversi start) throws IOException {
+        if (start.getFirstPlayer() != getStarted()
+                || start.next() != getStarted()
+                || Long.bitCount(start.getHuman() | start.getMachine()) != 4) {
+            throw new IllegalArgumentException("Board not at the start of "
+                    + "the game!");
+        }
+        start.setLevel(getLevel());
+        GameHistory history = new GameHistory(start);
+        try {
+            for (int i = 0; i < getLength(); i++) {
+                if (history.getBoard().next() != getMover(i)) {
+                    throw new IOException("Snapshot is corrupt!");
+                }
+                history.play(getMove(i));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Snapshot is corrupt!", e);
+        }
+        BitBoardReversi board = history.seek(getPly());
+        if (board.getHuman() != getHuman()
+                || board.getMachine() != getMachine()
+                || board.next() != getNext()) {
+            throw new IOException("Snapshot is corrupt!");
+        }
+        return history;
+    }
+
+    /**
+     * Getter for the Player who started the game.
+     *
+     * @return Returns the Player who made the first move.
+     */
+    public Player getStarted() {
+        return toPlayer(buffer.get(STARTED));
+    }
+
+    /**
+     * Getter for the level.
+     *
+     * @return Returns the level of the bot.
+     */
+    public int getLevel() {
+        return buffer.get(LEVEL) & 0xFF;
+    }
+
+    /**
+     * Getter for the Player who is next.
+     *
+     * @return Returns the Player who is next on the actual position.
+     */
+    public Player getNext() {
+        return toPlayer(buffer.get(NEXT));
+    }
+
+    /**
+     * Gets a slot of the actual position.
+     *
+     * @param row The row of the slot, starting with 0.
+     * @param col The column of the slot, starting with 0.
+     * @return Returns the Player with a tile on the slot, {@code null} if it
+     *         is empty.
+     */
+    public Player getSlot(int row, int col) {
+        if (row < 0 || col < 0 || row >= Board.SIZE || col >= Board.SIZE) {
+            throw new IllegalArgumentException("Slot not on grid!");
+        }
+        long slot = BitBoards.bit(row, col);
+        if ((getHuman() & slot) != 0) {
+            return Player.HUMAN;
+        } else if ((getMachine() & slot) != 0) {
+            return Player.MACHINE;
+        }
+        return null;
+    }
+
+    /**
+     * Getter for the number of tiles of the human.
+     *
+     * @return Returns the number of tiles of the human on the actual
+     *         position.
+     */
+    public int getNumberOfHumanTiles() {
+        return Long.bitCount(getHuman());
+    }
+
+    /**
+     * Getter for the number of tiles of the machine.
+     *
+     * @return Returns the number of tiles of the machine on the actual
+     *         position.
+     */
+    public int getNumberOfMachineTiles() {
+        return Long.bitCount(getMachine());
+    }
+
+    /**
+     * Getter for the number of moves made.
+     *
+     * @return Returns the number of moves made on the actual position.
+     */
+    public int getPly() {
+        return buffer.get(PLY) & 0xFF;
+    }
+
+    /**
+     * Getter for the length.
+     *
+     * @return Returns the number of moves including the ones taken back.
+     */
+    public int getLength() {
+        return buffer.get(LENGTH) & 0xFF;
+    }
+
+    /**
+     * Gets a move of the game.
+     *
+     * @param index The number of moves before it.
+     * @return Returns the square of the move, i.e., {@code row * SIZE +
+     *         col}.
+     */
+    public int getMove(int index) {
+        return move(index) & ~MACHINE_MOVE;
+    }
+
+    /**
+     * Gets the Player who made a move of the game.
+     *
+     * @param index The number of moves before it.
+     * @return Returns the Player who made the move.
+     */
+    public Player getMover(int index) {
+        return (move(index) & MACHINE_MOVE) != 0 ? Player.MACHINE
+                : Player.HUMAN;
+    }
+
+    /**
+     * Getter for the tiles of the human.
+     *
+     * @return Returns the bitboard of the tiles of the human.
+     */
+    private long getHuman() {
+        return buffer.getLong(HUMAN);
+    }
+
+    /**
+     * Getter for the tiles of the machine.
+     *
+     * @return Returns the bitboard of the tiles of the machine.
+     */
+    private long getMachine() {
+        return buffer.getLong(MACHINE);
+    }
+
+    /**
+     * Gets the byte of a move.
+     *
+     * @param index The number of moves before it.
+     * @return Returns the byte of the move.
+     */
+    private int move(int index) {
+        if (index < 0 || index >= getLength()) {
+            throw new IllegalArgumentException("Invalid number of moves!");
+        }
+        return buffer.get(HEADER_SIZE + index);
+    }
+
+    /**
+     * Converts a Player into its byte.
+     *
+     * @param player The Player.
+     * @return Returns 0 for the human and 1 for the machine.
+     */
+    private static byte toByte(Player player) {
+        return (byte) (player == Player.MACHINE ? 1 : 0);
+    }
+
+    /**
+     * Converts a byte into its Player.
+     *
+     * @param b The byte.
+     * @return Returns the human for 0 and the machine for 1.
+     */
+    private static Player toPlayer(byte b) {
+        return b == 0 ? Player.HUMAN : Player.MACHINE;
+    }
+}
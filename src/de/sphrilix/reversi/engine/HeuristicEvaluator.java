@@ -0,0 +1,97 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Reversi;
+
+/**
+ * This class provides the evaluation of {@link Reversi#score()} on
+ * bitboards. The terms are calculated in the same order, so the scores are
+ * exactly the same.
+ */
+public class HeuristicEvaluator implements Evaluator {
+
+    /**
+     * The points of each field indexed by {@code row * SIZE + col}.
+     */
+    static final int[] POINTS = new int[Board.SIZE * Board.SIZE];
+
+    static {
+        for (int i = 0; i < Board.SIZE; i++) {
+            for (int j = 0; j < Board.SIZE; j++) {
+                POINTS[i * Board.SIZE + j] = Reversi.getPointsOfField(i, j);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double evaluate(Position position) {
+        long machine = position.getMachine();
+        long human = position.getHuman();
+        long empty = ~(machine | human);
+        return score(pointsOf(machine), pointsOf(human),
+                BitBoards.mobility(machine, human),
+                BitBoards.mobility(human, machine),
+                BitBoards.emptyNeighbours(human, empty),
+                BitBoards.emptyNeighbours(machine, empty),
+                Long.bitCount(machine | human));
+    }
+
+    /**
+     * Combines the terms of {@link Reversi#score()}, in the same order, so
+     * the score is exactly the same. Every evaluator of this heuristic calls
+     * it, however it gets the terms.
+     *
+     * @param machinePoints The points of the fields of the machine.
+     * @param humanPoints The points of the fields of the human.
+     * @param mPlayer The number of possible moves of the machine.
+     * @param mEnemy The number of possible moves of the human.
+     * @param freeFieldsPlayer The number of empty fields next to the tiles
+     *        of the human.
+     * @param freeFieldsEnemy The number of empty fields next to the tiles of
+     *        the machine.
+     * @param occupiedFields The number of tiles on the board.
+     * @return Returns the score from the view of the machine.
+     */
+    static double score(int machinePoints, int humanPoints, int mPlayer,
+            int mEnemy, int freeFieldsPlayer, int freeFieldsEnemy,
+            int occupiedFields) {
+
+        // scoreT, the points of the fields of both players.
+        double scoreT = machinePoints - humanPoints * 1.5;
+
+        // scoreM, the mobility of both players.
+        double scoreM = (64.0 / occupiedFields) * (3.0 * mPlayer - 4.0
+                * mEnemy);
+
+        // scoreP, the free fields around the tiles of both players.
+        double scoreP = 64.0 / (2 * occupiedFields) * (2.5 * freeFieldsPlayer
+                - 3.0 * freeFieldsEnemy);
+        return scoreT + scoreM + scoreP;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    /**
+     * Sums up the points of the fields of the given tiles.
+     *
+     * @param tiles The bitboard of the tiles.
+     * @return Returns the sum of the points.
+     */
+    static int pointsOf(long tiles) {
+        int sum = 0;
+        for (long t = tiles; t != 0; t &= t - 1) {
+            sum += POINTS[Long.numberOfTrailingZeros(t)];
+        }
+        return sum;
+    }
+}
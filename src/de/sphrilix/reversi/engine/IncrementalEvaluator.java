@@ -0,0 +1,40 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Player;
+
+/**
+ * This class provides the same evaluation as {@link HeuristicEvaluator},
+ * but takes the points and the free fields from the values the
+ * {@link Position} keeps up to date with every move, instead of scanning the
+ * board. Only the mobility is calculated, by the move generation on the
+ * bitboards. Both combine the terms by
+ * {@link HeuristicEvaluator#score(int, int, int, int, int, int, int)}, so
+ * the scores are exactly the same.
+ */
+public class IncrementalEvaluator implements Evaluator {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double evaluate(Position position) {
+        long machine = position.getMachine();
+        long human = position.getHuman();
+        return HeuristicEvaluator.score(position.getPoints(Player.MACHINE),
+                position.getPoints(Player.HUMAN),
+                BitBoards.mobility(machine, human),
+                BitBoards.mobility(human, machine),
+                position.getFreeFields(Player.HUMAN),
+                position.getFreeFields(Player.MACHINE),
+                Long.bitCount(machine | human));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+}
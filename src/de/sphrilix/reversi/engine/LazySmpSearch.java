@@ -0,0 +1,293 @@
+package de.sphrilix.reversi.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class provides a Lazy SMP search. The calling thread deepens
+ * iteratively as {@link AlphaBetaSearch} does, while helper threads search
+ * the same position on their own, starting with different depths and in a
+ * different order of moves. All of them share one {@link TranspositionTable},
+ * so the calling thread finds many positions already searched by the
+ * helpers. Only the result of the calling thread counts. It has the same
+ * minimax score as the move of a sequential search, but may be another
+ * move of that score: the stored entries of other depths and move orders
+ * change the cutoffs and which of equal moves is found first.
+ */
+public class LazySmpSearch {
+
+    /**
+     * Distance between the order offsets of two helpers, coprime to 64 so
+     * that the helpers start at different squares.
+     */
+    private static final int OFFSET_STEP = 37;
+
+    /**
+     * Evaluator for the scores of the nodes.
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * Pool which runs the helpers.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of helpers.
+     */
+    private final int helpers;
+
+    /**
+     * Table shared by all threads.
+     */
+    private TranspositionTable table;
+
+    /**
+     * Token to cancel the search of the calling thread, which then stops
+     * the helpers.
+     */
+    private CancellationToken token = new CancellationToken();
+
+    /**
+     * Statistics of the latest search, summed up over all threads.
+     */
+    private SearchStats stats = SearchStats.NONE;
+
+    /**
+     * Depth of the latest completed search of the calling thread.
+     */
+    private int completedDepth;
+
+    /**
+     * Nanoseconds from the start until the calling thread completed each
+     * depth, indexed by depth.
+     */
+    private long[] timeToDepth = new long[0];
+
+    /**
+     * Creates a new search.
+     *
+     * @param evaluator The evaluator for the scores of the nodes.
+     * @param pool The pool to run the helpers.
+     * @param helpers The number of helpers, may be 0.
+     */
+    public LazySmpSearch(Evaluator evaluator, ForkJoinPool pool, int helpers) {
+        if (evaluator == null || pool == null || helpers < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.evaluator = evaluator;
+        this.pool = pool;
+        this.helpers = helpers;
+    }
+
+    /**
+     * Setter for the transposition table shared by all threads.
+     *
+     * @param table The table, {@code null} to search without table.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Setter for the token which cancels the following searches.
+     *
+     * @param token The token.
+     */
+    public void setCancellationToken(CancellationToken token) {
+        if (token == null) {
+            throw new IllegalArgumentException();
+        }
+        this.token = token;
+    }
+
+    /**
+     * Searches the best move of the Player who is next on the given position
+     * with the given depth. The calling thread deepens from depth 1. The
+     * position is unchanged afterwards.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param depth The depth of the search, the level of the bot.
+     * @return Returns the square of the best move.
+     * @throws CancellationException If the token has been cancelled.
+     */
+    public int bestMove(Position position, int depth) {
+        AlphaBetaSearch main = createSearch(0);
+        main.setCancellationToken(token);
+        main.startSearch(position);
+        timeToDepth = new long[depth + 1];
+        List<AlphaBetaSearch> helperSearches = new ArrayList<>();
+        List<Future<?>> results = startHelpers(position, depth,
+                helperSearches);
+        long start = System.nanoTime();
+        int bestMove = -1;
+        try {
+            for (int d = 1; d <= depth; d++) {
+                bestMove = main.searchIteration(position, d, bestMove);
+                timeToDepth[d] = System.nanoTime() - start;
+            }
+        } catch (AlphaBetaSearch.AbortedException e) {
+            throw new CancellationException("Search cancelled!");
+        } finally {
+            stopHelpers(helperSearches, results);
+        }
+        completedDepth = depth;
+        collect(main, helperSearches);
+        return bestMove;
+    }
+
+    /**
+     * Searches the best move of the Player who is next on the given position
+     * within the given time, see {@link AlphaBetaSearch#bestMoveInTime}. The
+     * position is unchanged afterwards.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param millis The time for the search in milliseconds.
+     * @return Returns the square of the best move of the deepest completed
+     *         iteration.
+     */
+    public int bestMoveInTime(Position position, long millis) {
+        AlphaBetaSearch main = createSearch(0);
+        main.setCancellationToken(token);
+        timeToDepth = new long[0];
+        List<AlphaBetaSearch> helperSearches = new ArrayList<>();
+        List<Future<?>> results = startHelpers(position,
+                position.getEmpties(), helperSearches);
+        int bestMove;
+        try {
+            bestMove = main.bestMoveInTime(position, millis);
+        } finally {
+            stopHelpers(helperSearches, results);
+        }
+        completedDepth = main.getDepth();
+        collect(main, helperSearches);
+        return bestMove;
+    }
+
+    /**
+     * Getter for the number of visited nodes.
+     *
+     * @return Returns the number of nodes visited by all threads in the
+     *         latest search.
+     */
+    public long getNodes() {
+        return stats.getNodes();
+    }
+
+    /**
+     * Gets the statistics of the latest search. The counters are summed up
+     * over all threads, the rest is the one of the calling thread.
+     *
+     * @return Returns the statistics.
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Getter for the depth of the latest search.
+     *
+     * @return Returns the depth of the latest completed search.
+     */
+    public int getDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Gets the time the calling thread needed to complete the given depth
+     * in the latest search with a fixed depth.
+     *
+     * @param depth The depth.
+     * @return Returns the time in nanoseconds, or 0 if unknown.
+     */
+    public long getTimeToDepth(int depth) {
+        return depth < timeToDepth.length ? timeToDepth[depth] : 0;
+    }
+
+    /**
+     * Creates the search of a thread.
+     *
+     * @param thread The number of the thread, 0 for the calling thread.
+     * @return Returns the search.
+     */
+    private AlphaBetaSearch createSearch(int thread) {
+        AlphaBetaSearch search = new AlphaBetaSearch(evaluator);
+        search.setTranspositionTable(table);
+        search.setOrderOffset(thread * OFFSET_STEP % Position.MAX_PLY);
+        return search;
+    }
+
+    /**
+     * Starts the helpers on copies of the given position. Every second
+     * helper starts one ply deeper.
+     *
+     * @param position The position to be searched.
+     * @param maxDepth The depth the helpers stop at.
+     * @param searches The list to add the searches of the helpers to.
+     * @return Returns the results of the helpers.
+     */
+    private List<Future<?>> startHelpers(Position position, int maxDepth,
+            List<AlphaBetaSearch> searches) {
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 1; i <= helpers; i++) {
+            AlphaBetaSearch helper = createSearch(i);
+            Position copy = new Position(position);
+            int startDepth = 1 + i % 2;
+            searches.add(helper);
+            results.add(pool.submit(() -> {
+                helper.startSearch(copy);
+                try {
+                    for (int d = startDepth; d <= maxDepth; d++) {
+                        helper.searchIteration(copy, d, -1);
+                    }
+                } catch (AlphaBetaSearch.AbortedException e) {
+
+                    // Stopped by the calling thread.
+                }
+            }));
+        }
+        return results;
+    }
+
+    /**
+     * Stops the helpers and waits until they are finished.
+     *
+     * @param searches The searches of the helpers.
+     * @param results The results of the helpers.
+     */
+    private void stopHelpers(List<AlphaBetaSearch> searches,
+            List<Future<?>> results) {
+        for (AlphaBetaSearch helper : searches) {
+            helper.stop();
+        }
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Sums up the statistics of the finished searches of all threads.
+     *
+     * @param main The search of the calling thread.
+     * @param helperSearches The searches of the helpers.
+     */
+    private void collect(AlphaBetaSearch main,
+            List<AlphaBetaSearch> helperSearches) {
+        SearchStats sum = main.getStats();
+        for (AlphaBetaSearch helper : helperSearches) {
+            sum = sum.plus(helper.getStats());
+        }
+        stats = sum;
+    }
+}
@@ -0,0 +1,218 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+
+/**
+ * This class provides the order in which {@link AlphaBetaSearch} tries the
+ * moves of a node. The earlier a refuting move is tried, the more subtrees
+ * get cut off. The order is:
+ * <ol>
+ * <li>the move of the transposition table or of the previous iteration,</li>
+ * <li>the killer moves of the ply, i.e., the latest two moves which caused
+ * a cutoff in a sibling node,</li>
+ * <li>all other moves by their history score, i.e., how often and how deep
+ * they caused cutoffs so far,</li>
+ * <li>on equal history by the points of their field in {@link
+ * de.sphrilix.reversi.model.Reversi}, so corners come first and the
+ * X-squares last,</li>
+ * <li>on equal points in row-major order, starting at the order
+ * offset.</li>
+ * </ol>
+ * Every step except the first can be switched off. Subclasses may plug in
+ * other orders by overriding {@link #order} and {@link #cutoff}. An instance
+ * belongs to one search and is not thread-safe.
+ */
+public class MoveOrderer {
+
+    /**
+     * History scores above this limit halve all scores.
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    /**
+     * Number of killer moves per ply.
+     */
+    private static final int KILLERS = 2;
+
+    /**
+     * Killer moves of every ply, -1 if none.
+     */
+    private final int[][] killers = new int[Position.MAX_PLY][KILLERS];
+
+    /**
+     * History scores of both Players, indexed by
+     * {@code player.ordinal() * MAX_PLY + square}.
+     */
+    private final int[] history = new int[2 * Position.MAX_PLY];
+
+    /**
+     * Sort keys of the moves of the latest call of {@link #order}.
+     */
+    private final long[] keys = new long[Position.MAX_PLY];
+
+    /**
+     * Whether the killer moves are tried early.
+     */
+    private boolean killersEnabled = true;
+
+    /**
+     * Whether the moves are sorted by their history score.
+     */
+    private boolean historyEnabled = true;
+
+    /**
+     * Whether the moves are sorted by the points of their field.
+     */
+    private boolean staticOrderEnabled = true;
+
+    /**
+     * Square the row-major order starts with.
+     */
+    private int offset;
+
+    /**
+     * Creates a new orderer with all steps switched on.
+     */
+    public MoveOrderer() {
+        newSearch();
+    }
+
+    /**
+     * Orders the given moves of a node.
+     *
+     * @param position The position of the node.
+     * @param moves The bitboard of the possible moves.
+     * @param bestMove The move to be tried first, or -1 if unknown.
+     * @param squares The array to be filled with the squares of the moves.
+     * @return Returns the number of moves.
+     */
+    public int order(Position position, long moves, int bestMove,
+            int[] squares) {
+        int count = 0;
+        if (bestMove >= 0 && (moves & (1L << bestMove)) != 0) {
+            squares[count++] = bestMove;
+            moves &= ~(1L << bestMove);
+        }
+        if (killersEnabled) {
+            int[] plyKillers = killers[position.getPly()];
+            for (int killer : plyKillers) {
+                if (killer >= 0 && (moves & (1L << killer)) != 0) {
+                    squares[count++] = killer;
+                    moves &= ~(1L << killer);
+                }
+            }
+        }
+
+        // The others by key, stable for equal keys.
+        int first = count;
+        int base = position.next().ordinal() * Position.MAX_PLY;
+        for (long m = Long.rotateRight(moves, offset); m != 0; m &= m - 1) {
+            int square = (Long.numberOfTrailingZeros(m) + offset)
+                    & (Position.MAX_PLY - 1);
+            long key = 0;
+            if (historyEnabled) {
+                key = (long) history[base + square] << 16;
+            }
+            if (staticOrderEnabled) {
+                key += HeuristicEvaluator.POINTS[square];
+            }
+            int i = count++;
+            while (i > first && keys[i - 1] < key) {
+                keys[i] = keys[i - 1];
+                squares[i] = squares[i - 1];
+                i--;
+            }
+            keys[i] = key;
+            squares[i] = square;
+        }
+        return count;
+    }
+
+    /**
+     * Records a move which caused a cutoff.
+     *
+     * @param position The position of the node, before the move.
+     * @param square The square of the move.
+     * @param depth The remaining depth of the node.
+     */
+    public void cutoff(Position position, int square, int depth) {
+        int[] plyKillers = killers[position.getPly()];
+        if (plyKillers[0] != square) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = square;
+        }
+        int index = position.next().ordinal() * Position.MAX_PLY + square;
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Prepares a new search: the killer moves get cleared, the history
+     * scores halved, so older searches count less.
+     */
+    public void newSearch() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = -1;
+            plyKillers[1] = -1;
+        }
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    /**
+     * Switches the killer moves on or off.
+     *
+     * @param enabled Whether the killer moves are tried early.
+     */
+    public void setKillers(boolean enabled) {
+        killersEnabled = enabled;
+    }
+
+    /**
+     * Switches the history scores on or off.
+     *
+     * @param enabled Whether the moves are sorted by their history score.
+     */
+    public void setHistory(boolean enabled) {
+        historyEnabled = enabled;
+    }
+
+    /**
+     * Switches the static order by the points of the fields on or off.
+     *
+     * @param enabled Whether the moves are sorted by the points of their
+     *        field.
+     */
+    public void setStaticOrder(boolean enabled) {
+        staticOrderEnabled = enabled;
+    }
+
+    /**
+     * Sets the square the row-major order starts with, continuing in
+     * row-major order and wrapping around.
+     *
+     * @param offset The first square, between 0 and 63.
+     */
+    public void setOffset(int offset) {
+        if (offset < 0 || offset >= Position.MAX_PLY) {
+            throw new IllegalArgumentException("Not a square!");
+        }
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the history score of a move.
+     *
+     * @param player The Player making the move.
+     * @param square The square of the move.
+     * @return Returns the history score.
+     */
+    public int getHistory(Player player, int square) {
+        return history[player.ordinal() * Position.MAX_PLY + square];
+    }
+}
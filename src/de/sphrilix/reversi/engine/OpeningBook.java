@@ -0,0 +1,272 @@
+package de.sphrilix.reversi.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class provides a book of prepared moves for the opening. The book is
+ * a binary file of fixed-size records sorted by the key of their position,
+ * which is mapped into memory and searched binary, so a lookup neither
+ * parses nor allocates anything. Books are made by an
+ * {@link OpeningBookBuilder}. Instances are immutable and may be shared by
+ * all threads.
+ *
+ * The file starts with a header of the magic number, the version and the
+ * number of records. Every record holds the key of the canonical form of
+ * the position, see {@link Symmetry#canonicalKey(long, long,
+ * de.sphrilix.reversi.model.Player)}, the score of the move, the square of
+ * the move on the canonical form and the depth it was searched with; two
+ * bytes of padding keep the records aligned. So one record serves all
+ * positions equivalent by rotation or reflection.
+ */
+public final class OpeningBook {
+
+    /**
+     * Magic number of a book file.
+     */
+    static final int MAGIC = 0x5256424B;
+
+    /**
+     * Version of the book file.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 12;
+
+    /**
+     * Size of a record in bytes.
+     */
+    static final int RECORD_SIZE = 16;
+
+    /**
+     * Offset of the score in a record.
+     */
+    private static final int SCORE = 8;
+
+    /**
+     * Offset of the square in a record.
+     */
+    private static final int SQUARE = 12;
+
+    /**
+     * Offset of the depth in a record.
+     */
+    private static final int DEPTH = 13;
+
+    /**
+     * Records of the book.
+     */
+    private final ByteBuffer records;
+
+    /**
+     * Number of records.
+     */
+    private final int size;
+
+    /**
+     * Creates a new book on the given content of a book file.
+     *
+     * @param buffer The content, from the start of the header.
+     * @throws IOException If the content has a wrong format.
+     */
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a book file!");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown version of the book file!");
+        }
+        size = buffer.getInt(8);
+        if (size < 0 || (long) size * RECORD_SIZE + HEADER_SIZE
+                != buffer.capacity()) {
+            throw new IOException("Book file is truncated!");
+        }
+        records = buffer;
+    }
+
+    /**
+     * Maps the book file into memory. The file must not be changed while
+     * the book is used.
+     *
+     * @param file The book file.
+     * @return Returns the book.
+     * @throws IOException If the file cannot be read or has a wrong format.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OpeningBook(buffer);
+        }
+    }
+
+    /**
+     * Creates a book of the given content of a book file, e.g., for a book
+     * built in memory.
+     *
+     * @param buffer The content, from the start of the header.
+     * @return Returns the book.
+     * @throws IOException If the content has a wrong format.
+     */
+    public static OpeningBook wrap(ByteBuffer buffer) throws IOException {
+        return new OpeningBook(buffer.duplicate());
+    }
+
+    /**
+     * Gets the prepared move of the Player who is next on the given
+     * position.
+     *
+     * @param position The position.
+     * @return Returns the square of the move, or -1 if the position is not
+     *         in the book.
+     */
+    public int move(Position position) {
+        int index = index(position);
+        return index >= 0 ? fromCanonical(position, getSquare(index)) : -1;
+    }
+
+    /**
+     * Getter for the number of positions.
+     *
+     * @return Returns the number of positions in the book.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the record of the given position.
+     *
+     * @param position The position.
+     * @return Returns the index of the record, or -1 if there is none.
+     */
+    int index(Position position) {
+        int index = find(key(position));
+
+        // A different position with the same key has other moves.
+        if (index >= 0 && (position.legalMoves()
+                & (1L << fromCanonical(position, getSquare(index)))) == 0) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Calculates the key of a position in the book.
+     *
+     * @param position The position.
+     * @return Returns the key of its canonical form.
+     */
+    static long key(Position position) {
+        return Symmetry.canonicalKey(position.getHuman(),
+                position.getMachine(), position.next());
+    }
+
+    /**
+     * Maps a square of a position onto its canonical form.
+     *
+     * @param position The position.
+     * @param square The square on the position.
+     * @return Returns the square on the canonical form.
+     */
+    static int toCanonical(Position position, int square) {
+        return Symmetry.transform(square, Symmetry.canonical(
+                position.getHuman(), position.getMachine()));
+    }
+
+    /**
+     * Maps a square of the canonical form of a position back onto it.
+     *
+     * @param position The position.
+     * @param square The square on the canonical form.
+     * @return Returns the square on the position.
+     */
+    static int fromCanonical(Position position, int square) {
+        return Symmetry.transform(square, Symmetry.inverse(
+                Symmetry.canonical(position.getHuman(),
+                        position.getMachine())));
+    }
+
+    /**
+     * Finds the record of the given key.
+     *
+     * @param key The key of a position.
+     * @return Returns the index of the record, or -1 if there is none.
+     */
+    int find(long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = getKey(middle);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the key of a record.
+     *
+     * @param index The index of the record.
+     * @return Returns the key of its position.
+     */
+    long getKey(int index) {
+        return records.getLong(offset(index));
+    }
+
+    /**
+     * Gets the square of the move of a record.
+     *
+     * @param index The index of the record.
+     * @return Returns the square on the canonical form, see
+     *         {@link #fromCanonical(Position, int)}.
+     */
+    int getSquare(int index) {
+        return records.get(offset(index) + SQUARE);
+    }
+
+    /**
+     * Gets the depth of the move of a record.
+     *
+     * @param index The index of the record.
+     * @return Returns the depth it was searched with.
+     */
+    int getDepth(int index) {
+        return records.get(offset(index) + DEPTH);
+    }
+
+    /**
+     * Gets the score of the move of a record.
+     *
+     * @param index The index of the record.
+     * @return Returns the score in view of the machine, like the one of
+     *         {@link SearchStats#getScore()}.
+     */
+    float getScore(int index) {
+        return records.getFloat(offset(index) + SCORE);
+    }
+
+    /**
+     * Gets the position of a record in the buffer.
+     *
+     * @param index The index of the record.
+     * @return Returns the offset in bytes.
+     */
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,239 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This class grows an {@link OpeningBook}. Moves get added from search
+ * results, e.g., of played games, or from self-play: games from both start
+ * positions where every position not yet in the book gets searched and
+ * added. The human plays random moves now and then, so the book covers the
+ * replies the bot has to answer, while the bot keeps to its moves. A move
+ * searched deeper replaces the one in the book. Positions equivalent by
+ * symmetry share one entry.
+ *
+ * Usage: {@code OpeningBookBuilder output [games] [plies] [level] [seed]
+ * [input]}, where the input is a book to be grown.
+ */
+public class OpeningBookBuilder {
+
+    /**
+     * Share of the moves of the human chosen at random.
+     */
+    private static final double RANDOM_RATE = 0.5;
+
+    /**
+     * Moves of the book by the keys of their positions, as square on the
+     * canonical form, depth and the bits of the score.
+     */
+    private final Map<Long, int[]> entries = new HashMap<>();
+
+    /**
+     * Creates a new empty builder.
+     */
+    public OpeningBookBuilder() {
+    }
+
+    /**
+     * Creates a new builder with the moves of the given book.
+     *
+     * @param book The book to be grown.
+     */
+    public OpeningBookBuilder(OpeningBook book) {
+        for (int i = 0; i < book.size(); i++) {
+            entries.put(book.getKey(i), new int[] {book.getSquare(i),
+                    book.getDepth(i), Float.floatToIntBits(book.getScore(i))});
+        }
+    }
+
+    /**
+     * Adds the result of a search, unless the position is in the book with
+     * a deeper search.
+     *
+     * @param position The searched position.
+     * @param square The square of the best move.
+     * @param depth The depth of the search.
+     * @param score The score of the move in view of the machine.
+     */
+    public void add(Position position, int square, int depth, double score) {
+        if ((position.legalMoves() & (1L << square)) == 0 || depth < 0
+                || depth > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid move or depth!");
+        }
+        long key = OpeningBook.key(position);
+        int[] entry = entries.get(key);
+        if (entry == null || entry[1] <= depth) {
+            entries.put(key, new int[] {
+                    OpeningBook.toCanonical(position, square), depth,
+                    Float.floatToIntBits((float) score)});
+        }
+    }
+
+    /**
+     * Checks whether the book holds a move of the given position searched
+     * with at least the given depth.
+     *
+     * @param position The position.
+     * @param depth The depth.
+     * @return Returns true if there is such a move.
+     */
+    public boolean contains(Position position, int depth) {
+        int[] entry = entries.get(OpeningBook.key(position));
+        return entry != null && entry[1] >= depth;
+    }
+
+    /**
+     * Plays games from both start positions and adds every position of the
+     * given first moves, searched with the given depth.
+     *
+     * @param games The number of games.
+     * @param plies The number of moves of every game.
+     * @param level The depth of the searches.
+     * @param seed The seed of the random moves.
+     */
+    public void selfPlay(int games, int plies, int level, long seed) {
+        if (games < 0 || plies < 0 || level < 1) {
+            throw new IllegalArgumentException("Invalid games, plies or "
+                    + "level!");
+        }
+        Random random = new Random(seed);
+        AlphaBetaSearch search = new AlphaBetaSearch(
+                new IncrementalEvaluator());
+        TranspositionTable table =
+                new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+        search.setTranspositionTable(table);
+        for (int g = 0; g < games; g++) {
+            Player started = g % 2 == 0 ? Player.HUMAN : Player.MACHINE;
+            Position position = Position.start(started);
+            for (int ply = 0; ply < plies && !position.gameOver(); ply++) {
+                if (!contains(position, level)) {
+                    table.newSearch();
+                    int square = search.bestMove(position, level);
+                    add(position, square, level,
+                            search.getStats().getScore());
+                }
+                long moves = position.legalMoves();
+                int square;
+                if (position.next() == Player.HUMAN
+                        && random.nextDouble() < RANDOM_RATE) {
+                    for (int skip = random.nextInt(Long.bitCount(moves));
+                            skip > 0; skip--) {
+                        moves &= moves - 1;
+                    }
+                    square = Long.numberOfTrailingZeros(moves);
+                } else {
+                    square = OpeningBook.fromCanonical(position,
+                            entries.get(OpeningBook.key(position))[0]);
+                }
+                position.makeMove(square);
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of positions.
+     *
+     * @return Returns the number of positions in the book.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the book in the format of a book file to the given stream.
+     *
+     * @param out The stream, which is not closed.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        long[] keys = new long[entries.size()];
+        int n = 0;
+        for (long key : entries.keySet()) {
+            keys[n++] = key;
+        }
+        Arrays.sort(keys);
+        DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(out));
+        data.writeInt(OpeningBook.MAGIC);
+        data.writeInt(OpeningBook.VERSION);
+        data.writeInt(keys.length);
+        for (long key : keys) {
+            int[] entry = entries.get(key);
+            data.writeLong(key);
+            data.writeInt(entry[2]);
+            data.writeByte(entry[0]);
+            data.writeByte(entry[1]);
+            data.writeShort(0);
+        }
+        data.flush();
+    }
+
+    /**
+     * Saves the book to the given file.
+     *
+     * @param file The book file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Creates a book in memory of the moves added so far.
+     *
+     * @return Returns the book.
+     */
+    public OpeningBook build() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                OpeningBook.HEADER_SIZE + size() * OpeningBook.RECORD_SIZE);
+        try {
+            write(out);
+            return OpeningBook.wrap(ByteBuffer.wrap(out.toByteArray()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Grows a book by self-play and saves it.
+     *
+     * @param args The output file, the number of games, the number of moves
+     *        of every game, the depth of the searches, the seed of the random
+     *        moves and a book to be grown, all but the output optional.
+     * @throws IOException If a book cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: OpeningBookBuilder output [games] "
+                    + "[plies] [level] [seed] [input]");
+            System.exit(1);
+        }
+        Path output = Paths.get(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        int level = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1L;
+        OpeningBookBuilder builder = args.length > 5
+                ? new OpeningBookBuilder(OpeningBook.open(Paths.get(args[5])))
+                : new OpeningBookBuilder();
+        long start = System.nanoTime();
+        builder.selfPlay(games, plies, level, seed);
+        builder.save(output);
+        System.out.printf("%d positions in %.1f s written to %s%n",
+                builder.size(), (System.nanoTime() - start) / 1e9, output);
+    }
+}
@@ -0,0 +1,302 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+/**
+ * This class provides an alpha-beta search which splits the moves of the
+ * root between the threads of a {@link ForkJoinPool}. The move most likely
+ * best, the one of the table or else the first of a {@link MoveOrderer}, is
+ * searched alone to get a good bound, the others are searched concurrently,
+ * each by its own {@link AlphaBetaSearch} on its own copy of the position.
+ * The best score so far is shared between the tasks, every task starts with
+ * the latest one and narrows its window while it runs whenever another
+ * task finds a better move. All tasks may share one
+ * {@link TranspositionTable}. The result is the same move as of a
+ * sequential search.
+ */
+public class ParallelSearch {
+
+    /**
+     * Evaluator for the scores of the nodes.
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * Pool which runs the searches of the root moves.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Table shared by all tasks.
+     */
+    private TranspositionTable table;
+
+    /**
+     * Number of nodes visited by the latest search.
+     */
+    private long nodes;
+
+    /**
+     * Token to cancel the searches of all tasks.
+     */
+    private CancellationToken token = new CancellationToken();
+
+    /**
+     * Statistics of the latest search, summed up over all root moves.
+     */
+    private SearchStats stats = SearchStats.NONE;
+
+    /**
+     * Principal variation of the best move so far.
+     */
+    private int[] bestLine;
+
+    /**
+     * Best move found so far by the current search.
+     */
+    private int bestMove;
+
+    /**
+     * Score of the best move found so far by the current search.
+     */
+    private double bestScore;
+
+    /**
+     * Best score so far, read by the running tasks without lock.
+     */
+    private volatile double sharedScore;
+
+    /**
+     * Creates a new search.
+     *
+     * @param evaluator The evaluator for the scores of the nodes.
+     * @param pool The pool to run the searches of the root moves.
+     */
+    public ParallelSearch(Evaluator evaluator, ForkJoinPool pool) {
+        if (evaluator == null || pool == null) {
+            throw new IllegalArgumentException();
+        }
+        this.evaluator = evaluator;
+        this.pool = pool;
+    }
+
+    /**
+     * Calculates the standard number of threads of a search: all processors
+     * but one, which is left for the event dispatch thread of the GUI.
+     *
+     * @return Returns the standard number of threads, at least 1.
+     */
+    public static int defaultParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * Creates a pool for searches. Its threads are daemons and run with less
+     * than normal priority, so they neither keep the application alive nor
+     * slow down the GUI.
+     *
+     * @param parallelism The number of threads, at least 1.
+     * @return Returns the new pool.
+     */
+    public static ForkJoinPool createPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool
+                    .defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            thread.setName("search-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Setter for the transposition table shared by all tasks.
+     *
+     * @param table The table, {@code null} to search without table.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Setter for the token which cancels the following searches.
+     *
+     * @param token The token.
+     */
+    public void setCancellationToken(CancellationToken token) {
+        if (token == null) {
+            throw new IllegalArgumentException();
+        }
+        this.token = token;
+    }
+
+    /**
+     * Searches the best move of the Player who is next on the given position.
+     * On equal scores the move on the lower square wins. The position is
+     * unchanged afterwards.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param depth The depth of the search, the level of the bot.
+     * @return Returns the square of the best move.
+     * @throws CancellationException If the token has been cancelled.
+     */
+    public int bestMove(Position position, int depth) {
+        long moves = AlphaBetaSearch.distinctMoves(evaluator,
+                position, position.legalMoves());
+        if (moves == 0) {
+            throw new IllegalArgumentException("No possible move!");
+        }
+        boolean maximize = position.next() == Player.MACHINE;
+        long start = System.nanoTime();
+        synchronized (this) {
+            nodes = 0;
+            stats = SearchStats.NONE;
+            bestMove = -1;
+            sharedScore = maximize ? Double.NEGATIVE_INFINITY
+                    : Double.POSITIVE_INFINITY;
+        }
+
+        // The most promising move alone, with a full window.
+        int first = firstMove(position, moves);
+        try {
+            searchMove(position, first, depth, maximize);
+        } catch (AlphaBetaSearch.AbortedException e) {
+            throw new CancellationException("Search cancelled!");
+        }
+
+        // The others concurrently.
+        List<Callable<Void>> tasks = new ArrayList<>();
+        long rest = moves & ~(1L << first);
+        for (; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            tasks.add(() -> {
+                searchMove(position, square, depth, maximize);
+                return null;
+            });
+        }
+        for (Future<Void> result : pool.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof AlphaBetaSearch.AbortedException) {
+                    throw new CancellationException("Search cancelled!");
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        synchronized (this) {
+            stats = new SearchStats(depth, bestScore,
+                    System.nanoTime() - start, nodes, stats.getEvaluations(),
+                    stats.getTableProbes(), stats.getTableHits(),
+                    stats.getCutoffs(), stats.getFirstMoveCutoffs(),
+                    bestLine);
+            return bestMove;
+        }
+    }
+
+    /**
+     * Getter for the number of visited nodes.
+     *
+     * @return Returns the number of nodes visited by the latest search.
+     */
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the statistics of the latest search, summed up over the searches
+     * of all root moves.
+     *
+     * @return Returns the statistics.
+     */
+    public synchronized SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Chooses the move of the root which is searched alone: the move stored
+     * in the table, else the first move of a new {@link MoveOrderer}.
+     *
+     * @param position The position of the root.
+     * @param moves The bitboard of the moves to be searched.
+     * @return Returns the square of the move.
+     */
+    private int firstMove(Position position, long moves) {
+        if (table != null) {
+            TranspositionTable.Entry entry = new TranspositionTable.Entry();
+            if (table.probe(position.getHash(), entry)
+                    && entry.getMove() >= 0
+                    && (moves & (1L << entry.getMove())) != 0) {
+                return entry.getMove();
+            }
+        }
+        int[] squares = new int[Position.MAX_PLY];
+        new MoveOrderer().order(position, moves, -1, squares);
+        return squares[0];
+    }
+
+    /**
+     * Searches a move of the root on a copy of the given position, using the
+     * best score so far as bound, and records the result. The bound gets
+     * narrowed to the best scores found by other tasks while the search
+     * runs; the lower square is not known then, so the bound always includes
+     * the best score.
+     *
+     * @param root The position of the root, which is not changed.
+     * @param square The move to be searched.
+     * @param depth The depth of the search.
+     * @param maximize Whether the machine is next at the root.
+     */
+    private void searchMove(Position root, int square, int depth,
+            boolean maximize) {
+        double alpha = Double.NEGATIVE_INFINITY;
+        double beta = Double.POSITIVE_INFINITY;
+        synchronized (this) {
+
+            // A lower square wins on equal scores, so include the best score.
+            if (bestMove >= 0 && maximize) {
+                alpha = square < bestMove ? Math.nextDown(bestScore)
+                        : bestScore;
+            } else if (bestMove >= 0) {
+                beta = square < bestMove ? Math.nextUp(bestScore) : bestScore;
+            }
+        }
+        Position position = new Position(root);
+        position.makeMove(square);
+        AlphaBetaSearch search = new AlphaBetaSearch(evaluator);
+        search.setTranspositionTable(table);
+        search.setCancellationToken(token);
+        double score = maximize
+                ? search.score(position, depth - 1, alpha, beta,
+                        () -> Math.nextDown(sharedScore), null)
+                : search.score(position, depth - 1, alpha, beta, null,
+                        () -> Math.nextUp(sharedScore));
+        synchronized (this) {
+            SearchStats moveStats = search.getStats();
+            nodes += moveStats.getNodes() + 1;
+            stats = stats.plus(moveStats);
+            boolean better = maximize ? score > bestScore : score < bestScore;
+            if (bestMove < 0 || better
+                    || (score == bestScore && square < bestMove)) {
+                bestMove = square;
+                bestScore = score;
+                sharedScore = score;
+                int[] line = moveStats.getPrincipalVariation();
+                bestLine = new int[line.length + 1];
+                bestLine[0] = square;
+                System.arraycopy(line, 0, bestLine, 1, line.length);
+            }
+        }
+    }
+}
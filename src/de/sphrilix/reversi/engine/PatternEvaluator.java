@@ -0,0 +1,476 @@
+package de.sphrilix.reversi.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * This class provides an evaluation by patterns, i.e., fixed groups of
+ * slots. Every occurrence of a pattern on the board, in all orientations,
+ * is read as a base-3 number with one digit per slot (0 empty, 1 machine,
+ * 2 human), which indexes a table of weights. The score is the sum of the
+ * weights of all occurrences plus a bias, in tiles of the final difference
+ * in view of the machine. There is a set of tables for each phase of the
+ * game, the phase depends on the number of empty slots. A pattern which
+ * covers the same slots in more than one orientation, like an edge, gets
+ * read in all of them and the smallest number counts, so the score does not
+ * change when the board is mirrored or rotated.
+ *
+ * The weights are fitted by {@link PatternTrainer} and stored in a binary
+ * file: the magic number {@code "RVPW"}, the version, the number of phases
+ * and patterns, the size of every pattern, and then for every phase the
+ * bias and the tables as 16 bit integers in units of 1/{@link #SCALE} tiles.
+ *
+ * The numbers of the occurrences are kept up to date by the
+ * {@link Position} from its first evaluation on, so an evaluation is a
+ * lookup per occurrence. The scores do not accumulate, the search only
+ * evaluates the leaves.
+ */
+public class PatternEvaluator implements Evaluator {
+
+    /**
+     * Number of phases of the game with their own weights.
+     */
+    public static final int PHASES = 6;
+
+    /**
+     * Weights are stored in units of 1/SCALE tiles.
+     */
+    public static final int SCALE = 128;
+
+    /**
+     * Magic number at the start of a weights file.
+     */
+    private static final int MAGIC = 0x52565057;
+
+    /**
+     * Version of the weights file.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The patterns, each in its base orientation as squares
+     * {@code row * SIZE + col}: the edge with both X-squares, the 3x3
+     * corner, the 2x5 corner and the diagonals of length 8 down to 4.
+     */
+    static final int[][] PATTERNS = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 9, 14},
+            {0, 1, 2, 8, 9, 10, 16, 17, 18},
+            {0, 1, 2, 3, 4, 8, 9, 10, 11, 12},
+            {0, 9, 18, 27, 36, 45, 54, 63},
+            {1, 10, 19, 28, 37, 46, 55},
+            {2, 11, 20, 29, 38, 47},
+            {3, 12, 21, 30, 39},
+            {4, 13, 22, 31}};
+
+    /**
+     * Squares of all occurrences of the patterns on the board.
+     */
+    static final int[][] INSTANCES;
+
+    /**
+     * Pattern of every occurrence, indexed like {@link #INSTANCES}.
+     */
+    static final int[] INSTANCE_PATTERNS;
+
+    /**
+     * Occurrences every square is part of, indexed by square.
+     */
+    private static final int[][] SQUARE_INSTANCES;
+
+    /**
+     * Value of a digit of every square in the occurrences it is part of,
+     * indexed like {@link #SQUARE_INSTANCES}.
+     */
+    private static final int[][] SQUARE_POWERS;
+
+    /**
+     * Smallest number of every occurrence of a pattern over all readings of
+     * its slots, indexed by pattern and number, {@code null} for a pattern
+     * with a single reading.
+     */
+    private static final int[][] CANONICAL;
+
+    static {
+        int[][] instances = new int[PATTERNS.length * Symmetry.COUNT][];
+        int[] patterns = new int[instances.length];
+        int count = 0;
+        for (int p = 0; p < PATTERNS.length; p++) {
+            for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+                int[] squares = new int[PATTERNS[p].length];
+                long set = 0;
+                for (int i = 0; i < squares.length; i++) {
+                    squares[i] = Symmetry.transform(PATTERNS[p][i], symmetry);
+                    set |= 1L << squares[i];
+                }
+
+                // Symmetric patterns cover the same slots more than once.
+                boolean known = false;
+                for (int i = 0; i < count; i++) {
+                    known |= patterns[i] == p && set(instances[i]) == set;
+                }
+                if (!known) {
+                    instances[count] = squares;
+                    patterns[count++] = p;
+                }
+            }
+        }
+        INSTANCES = new int[count][];
+        INSTANCE_PATTERNS = new int[count];
+        System.arraycopy(instances, 0, INSTANCES, 0, count);
+        System.arraycopy(patterns, 0, INSTANCE_PATTERNS, 0, count);
+
+        // For every square the occurrences it is part of, with its power.
+        SQUARE_INSTANCES = new int[Position.MAX_PLY][];
+        SQUARE_POWERS = new int[Position.MAX_PLY][];
+        for (int square = 0; square < Position.MAX_PLY; square++) {
+            int[] found = new int[INSTANCES.length];
+            int[] powers = new int[INSTANCES.length];
+            int n = 0;
+            for (int i = 0; i < INSTANCES.length; i++) {
+                int power = 1;
+                for (int k = INSTANCES[i].length - 1; k >= 0; k--) {
+                    if (INSTANCES[i][k] == square) {
+                        found[n] = i;
+                        powers[n++] = power;
+                    }
+                    power *= 3;
+                }
+            }
+            SQUARE_INSTANCES[square] = Arrays.copyOf(found, n);
+            SQUARE_POWERS[square] = Arrays.copyOf(powers, n);
+        }
+
+        // For every pattern the numbers of its other readings.
+        CANONICAL = new int[PATTERNS.length][];
+        for (int p = 0; p < PATTERNS.length; p++) {
+            int[] squares = PATTERNS[p];
+            int[][] readings = new int[Symmetry.COUNT][];
+            int n = 0;
+            for (int symmetry = 1; symmetry < Symmetry.COUNT; symmetry++) {
+                int[] reading = new int[squares.length];
+                boolean covered = true;
+                for (int k = 0; k < squares.length; k++) {
+                    int square = Symmetry.transform(squares[k], symmetry);
+                    reading[k] = -1;
+                    for (int j = 0; j < squares.length; j++) {
+                        if (squares[j] == square) {
+                            reading[k] = j;
+                        }
+                    }
+                    covered &= reading[k] >= 0;
+                }
+                if (covered) {
+                    readings[n++] = reading;
+                }
+            }
+            if (n > 0) {
+                CANONICAL[p] = new int[size(p)];
+                int[] digits = new int[squares.length];
+                for (int index = 0; index < CANONICAL[p].length; index++) {
+                    for (int k = squares.length - 1, i = index; k >= 0;
+                            k--, i /= 3) {
+                        digits[k] = i % 3;
+                    }
+                    int min = index;
+                    for (int r = 0; r < n; r++) {
+                        int other = 0;
+                        for (int k = 0; k < squares.length; k++) {
+                            other = other * 3 + digits[readings[r][k]];
+                        }
+                        min = Math.min(min, other);
+                    }
+                    CANONICAL[p][index] = min;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bias of every phase, in units of 1/SCALE tiles.
+     */
+    private final int[] bias = new int[PHASES];
+
+    /**
+     * Weights of every phase and pattern, indexed by the base-3 number of
+     * an occurrence, in units of 1/SCALE tiles.
+     */
+    private final short[][][] weights = new short[PHASES][PATTERNS.length][];
+
+    /**
+     * Creates a new evaluator with all weights 0.
+     */
+    public PatternEvaluator() {
+        for (int phase = 0; phase < PHASES; phase++) {
+            for (int p = 0; p < PATTERNS.length; p++) {
+                weights[phase][p] = new short[size(p)];
+            }
+        }
+    }
+
+    /**
+     * Loads the weights of an evaluator from the given file.
+     *
+     * @param file The weights file.
+     * @return Returns the evaluator.
+     * @throws IOException If the file cannot be read or has a wrong format.
+     */
+    public static PatternEvaluator load(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(
+                Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads the weights of an evaluator from the given stream.
+     *
+     * @param in The stream in the format of a weights file, which is not
+     *        closed.
+     * @return Returns the evaluator.
+     * @throws IOException If the stream cannot be read or has a wrong
+     *         format.
+     */
+    public static PatternEvaluator read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a weights file!");
+        }
+        if (data.readUnsignedShort() != VERSION) {
+            throw new IOException("Unknown version of the weights file!");
+        }
+        if (data.readUnsignedByte() != PHASES
+                || data.readUnsignedByte() != PATTERNS.length) {
+            throw new IOException("Weights file does not fit the patterns!");
+        }
+        for (int p = 0; p < PATTERNS.length; p++) {
+            if (data.readUnsignedByte() != PATTERNS[p].length) {
+                throw new IOException("Weights file does not fit the "
+                        + "patterns!");
+            }
+        }
+        PatternEvaluator evaluator = new PatternEvaluator();
+        for (int phase = 0; phase < PHASES; phase++) {
+            evaluator.bias[phase] = data.readInt();
+            for (int p = 0; p < PATTERNS.length; p++) {
+                short[] table = evaluator.weights[phase][p];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = data.readShort();
+                }
+                fold(p, table);
+            }
+        }
+        return evaluator;
+    }
+
+    /**
+     * Writes the weights to the given file.
+     *
+     * @param file The weights file, replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Writes the weights to the given stream.
+     *
+     * @param out The stream, which is flushed but not closed.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeByte(PHASES);
+        data.writeByte(PATTERNS.length);
+        for (int[] pattern : PATTERNS) {
+            data.writeByte(pattern.length);
+        }
+        for (int phase = 0; phase < PHASES; phase++) {
+            data.writeInt(bias[phase]);
+            for (short[] table : weights[phase]) {
+                for (short weight : table) {
+                    data.writeShort(weight);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double evaluate(Position position) {
+        int[] indices = position.patternIndices();
+        int phase = phase(position.getEmpties());
+        short[][] tables = weights[phase];
+        int sum = bias[phase];
+        for (int i = 0; i < indices.length; i++) {
+            sum += tables[INSTANCE_PATTERNS[i]][indices[i]];
+        }
+        return (double) sum / SCALE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accumulates() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    /**
+     * Sets the weights of a phase.
+     *
+     * @param phase The phase.
+     * @param phaseBias The bias in units of 1/SCALE tiles.
+     * @param tables The weights of every pattern in units of 1/SCALE tiles,
+     *        copied, of which only the ones of the smallest numbers count.
+     */
+    void setWeights(int phase, int phaseBias, short[][] tables) {
+        bias[phase] = phaseBias;
+        for (int p = 0; p < PATTERNS.length; p++) {
+            System.arraycopy(tables[p], 0, weights[phase][p], 0, size(p));
+            fold(p, weights[phase][p]);
+        }
+    }
+
+    /**
+     * Gets the smallest number of an occurrence of a pattern over all
+     * readings of its slots.
+     *
+     * @param pattern The pattern.
+     * @param index The base-3 number of the occurrence.
+     * @return Returns the number which indexes the weights.
+     */
+    static int canonical(int pattern, int index) {
+        return CANONICAL[pattern] != null ? CANONICAL[pattern][index] : index;
+    }
+
+    /**
+     * Calculates the phase of a position.
+     *
+     * @param empties The number of empty slots of the position.
+     * @return Returns the phase, between 0 and {@link #PHASES} - 1.
+     */
+    static int phase(int empties) {
+        return Math.min(PHASES - 1, (Position.MAX_PLY - 4 - empties) * PHASES
+                / (Position.MAX_PLY - 4));
+    }
+
+    /**
+     * Calculates the base-3 numbers of all occurrences of the patterns.
+     *
+     * @param machine The bitboard of the tiles of the machine.
+     * @param human The bitboard of the tiles of the human.
+     * @return Returns the indices, in the order of {@link #INSTANCES}.
+     */
+    static int[] indices(long machine, long human) {
+        int[] indices = new int[INSTANCES.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = index(INSTANCES[i], machine, human);
+        }
+        return indices;
+    }
+
+    /**
+     * Updates the base-3 numbers of all occurrences of the patterns after
+     * the digit of the given squares has changed.
+     *
+     * @param indices The indices, in the order of {@link #INSTANCES}.
+     * @param squares The bitboard of the changed squares.
+     * @param delta The change of the digit of every square.
+     */
+    static void update(int[] indices, long squares, int delta) {
+        for (long s = squares; s != 0; s &= s - 1) {
+            int square = Long.numberOfTrailingZeros(s);
+            int[] instances = SQUARE_INSTANCES[square];
+            int[] powers = SQUARE_POWERS[square];
+            for (int k = 0; k < instances.length; k++) {
+                indices[instances[k]] += delta * powers[k];
+            }
+        }
+    }
+
+    /**
+     * Calculates the base-3 number of an occurrence of a pattern.
+     *
+     * @param squares The squares of the occurrence.
+     * @param machine The bitboard of the tiles of the machine.
+     * @param human The bitboard of the tiles of the human.
+     * @return Returns the index into the table of the pattern.
+     */
+    static int index(int[] squares, long machine, long human) {
+        int index = 0;
+        for (int square : squares) {
+            index = index * 3 + (int) ((machine >>> square) & 1)
+                    + 2 * (int) ((human >>> square) & 1);
+        }
+        return index;
+    }
+
+    /**
+     * Calculates the size of the table of a pattern.
+     *
+     * @param pattern The pattern.
+     * @return Returns 3 to the power of the number of its slots.
+     */
+    static int size(int pattern) {
+        int size = 1;
+        for (int i = 0; i < PATTERNS[pattern].length; i++) {
+            size *= 3;
+        }
+        return size;
+    }
+
+    /**
+     * Copies the weight of the smallest number of every occurrence to its
+     * other numbers, so the evaluation can look up the numbers as they are
+     * kept up to date by the {@link Position}.
+     *
+     * @param pattern The pattern.
+     * @param table The weights of the pattern.
+     */
+    private static void fold(int pattern, short[] table) {
+        if (CANONICAL[pattern] != null) {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = table[CANONICAL[pattern][i]];
+            }
+        }
+    }
+
+    /**
+     * Collects squares into a bitboard.
+     *
+     * @param squares The squares.
+     * @return Returns the bitboard of the squares.
+     */
+    private static long set(int[] squares) {
+        long set = 0;
+        for (int square : squares) {
+            set |= 1L << square;
+        }
+        return set;
+    }
+}
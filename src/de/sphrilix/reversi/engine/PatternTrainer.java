@@ -0,0 +1,400 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class fits the weights of a {@link PatternEvaluator} offline. It
+ * plays games of the bot against itself, with random moves at the start
+ * and now and then for variety, and labels every position of a game with
+ * its final difference of tiles in view of the machine. The weights of each
+ * phase are then fitted by least squares with a small penalty on the size
+ * of the weights, using gradient descent where the step of every weight is
+ * divided by the number of positions it occurs in.
+ *
+ * The games can be kept in an archive, see {@link GameRecordWriter}: its
+ * games are trained on as well and the new self-play games get appended,
+ * so every run learns from all games played so far.
+ *
+ * Usage: {@code PatternTrainer output [games] [epochs] [seed] [archive]}
+ */
+public class PatternTrainer {
+
+    /**
+     * Depth of the search of the self-play games.
+     */
+    private static final int LEVEL = 2;
+
+    /**
+     * Number of random moves at the start of every game.
+     */
+    private static final int RANDOM_PLIES = 8;
+
+    /**
+     * Chance of a random move later on.
+     */
+    private static final double RANDOM_RATE = 0.1;
+
+    /**
+     * Factor of the steps of the gradient descent. All occurrences of a
+     * position move at once, so the steps get divided by their number to
+     * keep the descent from overshooting.
+     */
+    private static final double RATE = 1.5
+            / PatternEvaluator.INSTANCES.length;
+
+    /**
+     * Added to the number of occurrences of a weight, so weights seen in
+     * few positions stay close to 0 instead of learning them by heart.
+     */
+    private static final int REGULARIZATION = 4;
+
+    /**
+     * Number of empty slots from which on the games are solved exactly.
+     */
+    private static final int SOLVE_EMPTIES = 12;
+
+    /**
+     * Tiles of the human of all positions.
+     */
+    private long[] humans = new long[0];
+
+    /**
+     * Tiles of the machine of all positions.
+     */
+    private long[] machines = new long[0];
+
+    /**
+     * Final difference of tiles of all positions.
+     */
+    private int[] results = new int[0];
+
+    /**
+     * Number of collected positions.
+     */
+    private int size;
+
+    /**
+     * Plays the given number of games and collects their positions.
+     *
+     * @param games The number of games.
+     * @param seed The seed of the random moves.
+     */
+    public void selfPlay(int games, long seed) {
+        try {
+            selfPlay(games, seed, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Plays the given number of games, collects their positions and appends
+     * the games to an archive.
+     *
+     * @param games The number of games.
+     * @param seed The seed of the random moves.
+     * @param archive The archive, {@code null} if the games are not kept.
+     * @throws IOException If the archive cannot be written.
+     */
+    public void selfPlay(int games, long seed, GameRecordWriter archive)
+            throws IOException {
+        if (games < 0) {
+            throw new IllegalArgumentException("Games must not be negative!");
+        }
+        Random random = new Random(seed);
+        AlphaBetaSearch search = new AlphaBetaSearch(
+                new IncrementalEvaluator());
+        EndgameSolver solver = new EndgameSolver();
+        long[] gameHumans = new long[Position.MAX_PLY];
+        long[] gameMachines = new long[Position.MAX_PLY];
+        int[] gameMoves = new int[Position.MAX_PLY];
+        for (int g = 0; g < games; g++) {
+            Player started = random.nextBoolean() ? Player.HUMAN
+                    : Player.MACHINE;
+            Position position = Position.start(started);
+            int plies = 0;
+            while (!position.gameOver()) {
+                long moves = position.legalMoves();
+                int square;
+                if (plies < RANDOM_PLIES
+                        || random.nextDouble() < RANDOM_RATE) {
+                    for (int skip = random.nextInt(Long.bitCount(moves));
+                            skip > 0; skip--) {
+                        moves &= moves - 1;
+                    }
+                    square = Long.numberOfTrailingZeros(moves);
+                } else if (position.getEmpties() <= SOLVE_EMPTIES) {
+                    square = solver.bestMove(position);
+                } else {
+                    square = search.bestMove(position, LEVEL);
+                }
+                position.makeMove(square);
+                gameMoves[plies] = square;
+                gameHumans[plies] = position.getHuman();
+                gameMachines[plies] = position.getMachine();
+                plies++;
+            }
+            int result = Position.finalDifference(position.getMachine(),
+                    position.getHuman());
+            for (int i = 0; i < plies; i++) {
+                add(gameHumans[i], gameMachines[i], result);
+            }
+            if (archive != null) {
+                archive.write(new GameRecord(started, LEVEL,
+                        Arrays.copyOf(gameMoves, plies)));
+            }
+        }
+    }
+
+    /**
+     * Adds the positions of a recorded game.
+     *
+     * @param game The game.
+     * @return Returns true if the positions were added, false if the game
+     *         is not over, so there is no result to label them with.
+     */
+    public boolean add(GameRecord game) {
+        Position position = game.position(game.getLength());
+        if (!position.gameOver()) {
+            return false;
+        }
+        int result = Position.finalDifference(position.getMachine(),
+                position.getHuman());
+        for (int ply = game.getLength(); ply > 0; ply--) {
+            add(position.getHuman(), position.getMachine(), result);
+            position.undoMove();
+        }
+        return true;
+    }
+
+    /**
+     * Adds a labelled position.
+     *
+     * @param human The tiles of the human.
+     * @param machine The tiles of the machine.
+     * @param result The final difference of tiles in view of the machine.
+     */
+    public void add(long human, long machine, int result) {
+        if (size == results.length) {
+            int capacity = Math.max(1024, size * 2);
+            humans = Arrays.copyOf(humans, capacity);
+            machines = Arrays.copyOf(machines, capacity);
+            results = Arrays.copyOf(results, capacity);
+        }
+        humans[size] = human;
+        machines[size] = machine;
+        results[size] = result;
+        size++;
+    }
+
+    /**
+     * Getter for the number of collected positions.
+     *
+     * @return Returns the number of positions.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Fits the weights to the collected positions.
+     *
+     * @param epochs The number of steps of the gradient descent.
+     * @return Returns the evaluator with the fitted weights.
+     */
+    public PatternEvaluator train(int epochs) {
+        return train(epochs, null);
+    }
+
+    /**
+     * Fits the weights to the collected positions and reports the error of
+     * the fit.
+     *
+     * @param epochs The number of steps of the gradient descent.
+     * @param errors Receives the root mean square error of every phase in
+     *        tiles, 0 for a phase without positions; may be {@code null}.
+     * @return Returns the evaluator with the fitted weights.
+     * @throws IllegalArgumentException If the array has less than
+     *         {@link PatternEvaluator#PHASES} elements.
+     */
+    public PatternEvaluator train(int epochs, double[] errors) {
+        if (errors != null && errors.length < PatternEvaluator.PHASES) {
+            throw new IllegalArgumentException("Array too short!");
+        }
+        PatternEvaluator evaluator = new PatternEvaluator();
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+            double error = trainPhase(evaluator, phase, epochs);
+            if (errors != null) {
+                errors[phase] = error;
+            }
+        }
+        return evaluator;
+    }
+
+    /**
+     * Plays self-play games, fits the weights and writes them to a file.
+     *
+     * @param args The weights file, the number of games, the number of
+     *        epochs, the seed and the archive of games, all but the first
+     *        optional.
+     * @throws IOException If the weights file or the archive cannot be
+     *         read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: PatternTrainer output [games] "
+                    + "[epochs] [seed] [archive]");
+            System.exit(1);
+        }
+        Path output = Paths.get(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+        PatternTrainer trainer = new PatternTrainer();
+        long start = System.nanoTime();
+        if (args.length > 4) {
+            Path file = Paths.get(args[4]);
+            if (Files.exists(file)) {
+                int recorded = 0;
+                try (GameRecordReader reader = GameRecordReader.open(file)) {
+                    while (reader.hasNext()) {
+                        if (trainer.add(reader.next())) {
+                            recorded++;
+                        }
+                    }
+                }
+                System.out.printf("%d positions of %d recorded games%n",
+                        trainer.getSize(), recorded);
+            }
+            try (GameRecordWriter archive = GameRecordWriter.append(file)) {
+                trainer.selfPlay(games, seed, archive);
+            }
+        } else {
+            trainer.selfPlay(games, seed);
+        }
+        System.out.printf("%d positions after %d games in %.1f s%n",
+                trainer.getSize(), games, (System.nanoTime() - start) / 1e9);
+        double[] errors = new double[PatternEvaluator.PHASES];
+        PatternEvaluator evaluator = trainer.train(epochs, errors);
+        for (int phase = 0; phase < errors.length; phase++) {
+            System.out.printf("phase %d: rms error %.2f tiles%n", phase,
+                    errors[phase]);
+        }
+        evaluator.save(output);
+        System.out.println("weights written to " + output);
+    }
+
+    /**
+     * Fits the weights of one phase.
+     *
+     * @param evaluator The evaluator to get the weights.
+     * @param phase The phase.
+     * @param epochs The number of steps of the gradient descent.
+     * @return Returns the root mean square error of the fit in tiles.
+     */
+    private double trainPhase(PatternEvaluator evaluator, int phase,
+            int epochs) {
+        int patterns = PatternEvaluator.PATTERNS.length;
+        int[][] instances = PatternEvaluator.INSTANCES;
+        int[] instancePatterns = PatternEvaluator.INSTANCE_PATTERNS;
+
+        // Indices of all occurrences of the positions of this phase.
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (phaseOf(i) == phase) {
+                count++;
+            }
+        }
+        int[][] indices = new int[count][instances.length];
+        int[] labels = new int[count];
+        double[][] weights = new double[patterns][];
+        double[][] gradients = new double[patterns][];
+        int[][] occurrences = new int[patterns][];
+        for (int p = 0; p < patterns; p++) {
+            weights[p] = new double[PatternEvaluator.size(p)];
+            gradients[p] = new double[weights[p].length];
+            occurrences[p] = new int[weights[p].length];
+        }
+        for (int i = 0, n = 0; i < size; i++) {
+            if (phaseOf(i) == phase) {
+                for (int j = 0; j < instances.length; j++) {
+                    indices[n][j] = PatternEvaluator.canonical(
+                            instancePatterns[j], PatternEvaluator.index(
+                                    instances[j], machines[i], humans[i]));
+                    occurrences[instancePatterns[j]][indices[n][j]]++;
+                }
+                labels[n++] = results[i];
+            }
+        }
+
+        double bias = 0;
+        double error = 0;
+        for (int epoch = 0; epoch < epochs && count > 0; epoch++) {
+            double biasGradient = 0;
+            error = 0;
+            for (int n = 0; n < count; n++) {
+                double prediction = bias;
+                for (int j = 0; j < instances.length; j++) {
+                    prediction += weights[instancePatterns[j]][indices[n][j]];
+                }
+                double residual = labels[n] - prediction;
+                error += residual * residual;
+                biasGradient += residual;
+                for (int j = 0; j < instances.length; j++) {
+                    gradients[instancePatterns[j]][indices[n][j]] += residual;
+                }
+            }
+            bias += RATE * biasGradient / count;
+            for (int p = 0; p < patterns; p++) {
+                for (int k = 0; k < weights[p].length; k++) {
+                    if (occurrences[p][k] > 0) {
+                        weights[p][k] += RATE * (gradients[p][k]
+                                - REGULARIZATION * weights[p][k])
+                                / (occurrences[p][k] + REGULARIZATION);
+                    }
+                    gradients[p][k] = 0;
+                }
+            }
+        }
+        short[][] tables = new short[patterns][];
+        for (int p = 0; p < patterns; p++) {
+            tables[p] = new short[weights[p].length];
+            for (int k = 0; k < weights[p].length; k++) {
+                tables[p][k] = quantize(weights[p][k]);
+            }
+        }
+        evaluator.setWeights(phase, (int) Math.round(bias
+                * PatternEvaluator.SCALE), tables);
+        return count > 0 ? Math.sqrt(error / count) : 0.0;
+    }
+
+    /**
+     * Calculates the phase of a collected position.
+     *
+     * @param i The number of the position.
+     * @return Returns the phase.
+     */
+    private int phaseOf(int i) {
+        return PatternEvaluator.phase(Position.MAX_PLY
+                - Long.bitCount(humans[i] | machines[i]));
+    }
+
+    /**
+     * Converts a weight to the units of the weights file.
+     *
+     * @param weight The weight in tiles.
+     * @return Returns the weight in units of 1/SCALE tiles, limited to the
+     *         range of a short.
+     */
+    private static short quantize(double weight) {
+        long scaled = Math.round(weight * PatternEvaluator.SCALE);
+        return (short) Math.max(Short.MIN_VALUE,
+                Math.min(Short.MAX_VALUE, scaled));
+    }
+}
@@ -0,0 +1,220 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import de.sphrilix.reversi.model.Reversi;
+
+/**
+ * This class provides perft, i.e., the number of leaves of the game tree up
+ * to a given depth, to verify and to measure move generators. A pass is no
+ * ply of its own: after a move the enemy is next if he can move, else the
+ * same Player moves again, as it is done by the Board implementations. A
+ * game which is over is a leaf, no matter how deep.
+ *
+ * There are two paths: one on the {@code Tile[][]} boards of
+ * {@link Reversi}, and one on the bitboards of a {@link Position}. Both must
+ * always give the same numbers, which the tests check.
+ *
+ * Usage: {@code Perft [depth] [tiles|bitboards|both]}
+ */
+public final class Perft {
+
+    /**
+     * Utility class, no instances.
+     */
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaves of the game tree of the given board.
+     *
+     * @param board The root of the tree.
+     * @param depth The depth of the tree, at least 0.
+     * @return Returns the number of leaves.
+     */
+    public static long perft(Reversi board, int depth) {
+        checkDepth(depth);
+        return count(board, depth);
+    }
+
+    /**
+     * Counts the leaves of the game tree of the given position. The
+     * position is unchanged afterwards.
+     *
+     * @param position The root of the tree.
+     * @param depth The depth of the tree, at least 0.
+     * @return Returns the number of leaves.
+     */
+    public static long perft(Position position, int depth) {
+        checkDepth(depth);
+        return count(position, depth);
+    }
+
+    /**
+     * Counts the leaves below every move of the given board.
+     *
+     * @param board The root of the tree.
+     * @param depth The depth of the tree, at least 1.
+     * @return Returns the number of leaves below every move, indexed by its
+     *         square {@code row * SIZE + col}, 0 for impossible moves.
+     */
+    public static long[] divide(Reversi board, int depth) {
+        checkDepth(depth - 1);
+        long[] leaves = new long[Position.MAX_PLY];
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Reversi child = board.gameOver() ? null
+                        : board.play(row, col);
+                if (child != null) {
+                    leaves[row * Board.SIZE + col] = count(child, depth - 1);
+                }
+            }
+        }
+        return leaves;
+    }
+
+    /**
+     * Counts the leaves below every move of the given position. The
+     * position is unchanged afterwards.
+     *
+     * @param position The root of the tree.
+     * @param depth The depth of the tree, at least 1.
+     * @return Returns the number of leaves below every move, indexed by its
+     *         square {@code row * SIZE + col}, 0 for impossible moves.
+     */
+    public static long[] divide(Position position, int depth) {
+        checkDepth(depth - 1);
+        long[] leaves = new long[Position.MAX_PLY];
+        long moves = position.gameOver() ? 0 : position.legalMoves();
+        for (; moves != 0; moves &= moves - 1) {
+            int square = Long.numberOfTrailingZeros(moves);
+            position.makeMove(square);
+            leaves[square] = count(position, depth - 1);
+            position.undoMove();
+        }
+        return leaves;
+    }
+
+    /**
+     * Runs perft from the start position and prints the leaves below every
+     * move and the total with the nodes per second.
+     *
+     * @param args The depth, 6 if missing, and the path, both if missing.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        String path = args.length > 1 ? args[1] : "both";
+        if (depth < 1 || !path.matches("tiles|bitboards|both")) {
+            System.err.println("Usage: Perft [depth] [tiles|bitboards|both]");
+            System.exit(1);
+        }
+        if (!path.equals("bitboards")) {
+            Reversi board = new Reversi(Player.HUMAN);
+            long start = System.nanoTime();
+            long[] tiles = divide(board, depth);
+            print("tiles", tiles, System.nanoTime() - start);
+        }
+        if (!path.equals("tiles")) {
+            Position position = Position.start(Player.HUMAN);
+            long start = System.nanoTime();
+            long[] bitBoards = divide(position, depth);
+            print("bitboards", bitBoards, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Counts the leaves of the game tree of the given board.
+     *
+     * @param board The root of the tree.
+     * @param depth The remaining depth.
+     * @return Returns the number of leaves.
+     */
+    private static long count(Reversi board, int depth) {
+        if (depth == 0 || board.gameOver()) {
+            return 1;
+        }
+        long leaves = 0;
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Reversi child = board.play(row, col);
+                if (child != null) {
+                    leaves += count(child, depth - 1);
+                }
+            }
+        }
+        return leaves;
+    }
+
+    /**
+     * Counts the leaves of the game tree of the given position. The moves of
+     * the last ply are counted without executing them.
+     *
+     * @param position The root of the tree.
+     * @param depth The remaining depth.
+     * @return Returns the number of leaves.
+     */
+    private static long count(Position position, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long moves = position.legalMoves();
+        if (moves == 0) {
+
+            // The next Player can only be stuck if the game is over.
+            return 1;
+        }
+        if (depth == 1) {
+            return Long.bitCount(moves);
+        }
+        long leaves = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            position.makeMove(Long.numberOfTrailingZeros(moves));
+            leaves += count(position, depth - 1);
+            position.undoMove();
+        }
+        return leaves;
+    }
+
+    /**
+     * Prints the leaves below every move and the total.
+     *
+     * @param path The name of the path.
+     * @param leaves The leaves below every move, indexed by square.
+     * @param nanos The time of the run in nanoseconds.
+     */
+    private static void print(String path, long[] leaves, long nanos) {
+        System.out.println(path + ":");
+        long total = 0;
+        for (int square = 0; square < leaves.length; square++) {
+            if (leaves[square] > 0) {
+                System.out.println("  " + name(square) + ": "
+                        + leaves[square]);
+                total += leaves[square];
+            }
+        }
+        System.out.printf("  total: %d in %.3f s, %.0f nodes/s%n", total,
+                nanos / 1e9, total * 1e9 / nanos);
+    }
+
+    /**
+     * Gets the name of a square as the coordinates shown in the GUI.
+     *
+     * @param square The square.
+     * @return Returns the row and the column, starting at 1.
+     */
+    private static String name(int square) {
+        return "(" + (square / Board.SIZE + 1) + ", "
+                + (square % Board.SIZE + 1) + ")";
+    }
+
+    /**
+     * Checks that the given depth is not negative.
+     *
+     * @param depth The depth.
+     */
+    private static void checkDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative!");
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class thinks on the time of the human. As a task on the executor of
+ * the {@link Engine} it searches the answer of the machine to every reply
+ * of the human, the expected reply first, and keeps the answers. The
+ * searches share the transposition table of the engine, so even a reply
+ * which has not been answered yet gets searched faster afterwards. An
+ * instance ponders once and can be stopped at any time.
+ */
+final class Ponderer {
+
+    /**
+     * Position with the human next, owned by the pondering task.
+     */
+    private final Position position;
+
+    /**
+     * Depth of the searches.
+     */
+    private final int level;
+
+    /**
+     * Number of empty slots from which on the answers are solved.
+     */
+    private final int endgameEmpties;
+
+    /**
+     * Reply of the human expected by the latest search, or -1.
+     */
+    private final int expectedReply;
+
+    /**
+     * Search of the answers.
+     */
+    private final AlphaBetaSearch search;
+
+    /**
+     * Solver of the answers close to the end.
+     */
+    private final EndgameSolver solver = new EndgameSolver();
+
+    /**
+     * Token to stop pondering.
+     */
+    private final CancellationToken token = new CancellationToken();
+
+    /**
+     * Answers found so far, written by the pondering task only.
+     */
+    private final List<Answer> answers = new ArrayList<>();
+
+    /**
+     * Result of the pondering task.
+     */
+    private final Future<?> task;
+
+    /**
+     * Whether the pondering task has finished, so the answers can be read.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new ponderer and starts it.
+     *
+     * @param evaluator The evaluator of the searches.
+     * @param table The table shared with the engine, may be {@code null}.
+     * @param position The position with the human next, which gets copied.
+     * @param level The depth of the searches.
+     * @param endgameEmpties The number of empty slots from which on the
+     *        answers are solved.
+     * @param expectedReply The reply expected by the latest search, or -1.
+     * @param executor The executor to ponder on.
+     */
+    Ponderer(Evaluator evaluator, TranspositionTable table, Position position,
+            int level, int endgameEmpties, int expectedReply,
+            ExecutorService executor) {
+        this.position = new Position(position);
+        this.level = level;
+        this.endgameEmpties = endgameEmpties;
+        this.expectedReply = expectedReply;
+        search = new AlphaBetaSearch(evaluator);
+        search.setTranspositionTable(table);
+        search.setCancellationToken(token);
+        solver.setCancellationToken(token);
+        task = executor.submit(this::ponder);
+    }
+
+    /**
+     * Stops pondering and waits until the task is finished, which takes no
+     * more than a few thousand nodes. If the calling thread gets interrupted
+     * while waiting, it keeps its interrupt and the answers are dropped.
+     */
+    void stop() {
+        token.cancel();
+        try {
+            task.get();
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Gets the prepared answer to the given position. Must only be called
+     * after {@link #stop()}.
+     *
+     * @param answered The position after the reply of the human.
+     * @param level The depth the answer has to be searched with.
+     * @param endgameEmpties The number of empty slots from which on the
+     *        answer has to be solved.
+     * @return Returns the answer, or {@code null} if there is none for the
+     *         given settings.
+     */
+    Answer answer(Position answered, int level, int endgameEmpties) {
+        if (!finished) {
+            return null;
+        }
+        boolean solved = answered.getEmpties() <= endgameEmpties;
+        if (solved != answered.getEmpties() <= this.endgameEmpties
+                || (!solved && level != this.level)) {
+            return null;
+        }
+        for (Answer answer : answers) {
+            if (answer.human == answered.getHuman()
+                    && answer.machine == answered.getMachine()
+                    && answered.next() == Player.MACHINE) {
+                return answer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches the answers to all replies of the human until done or
+     * stopped.
+     */
+    private void ponder() {
+        int[] replies = new int[Position.MAX_PLY];
+        int count = new MoveOrderer().order(position, position.legalMoves(),
+                expectedReply, replies);
+        try {
+            for (int i = 0; i < count; i++) {
+                position.makeMove(replies[i]);
+                if (!position.gameOver()
+                        && position.next() == Player.MACHINE) {
+                    int move;
+                    SearchStats stats;
+                    if (position.getEmpties() <= endgameEmpties) {
+                        move = solver.bestMove(position);
+                        stats = solver.getStats();
+                    } else {
+                        move = search.bestMove(position, level);
+                        stats = search.getStats();
+                    }
+                    answers.add(new Answer(position.getHuman(),
+                            position.getMachine(), move, stats));
+                }
+                position.undoMove();
+            }
+        } catch (CancellationException e) {
+
+            // Stopped, the position is not used any more.
+        }
+    }
+
+    /**
+     * This class holds the prepared answer of the machine to a position.
+     */
+    static final class Answer {
+
+        /**
+         * Tiles of the human of the answered position.
+         */
+        private final long human;
+
+        /**
+         * Tiles of the machine of the answered position.
+         */
+        private final long machine;
+
+        /**
+         * Square of the answer.
+         */
+        private final int move;
+
+        /**
+         * Statistics of the search of the answer.
+         */
+        private final SearchStats stats;
+
+        /**
+         * Creates a new answer.
+         *
+         * @param human The tiles of the human of the answered position.
+         * @param machine The tiles of the machine of the answered position.
+         * @param move The square of the answer.
+         * @param stats The statistics of the search of the answer.
+         */
+        private Answer(long human, long machine, int move, SearchStats stats) {
+            this.human = human;
+            this.machine = machine;
+            this.move = move;
+            this.stats = stats;
+        }
+
+        /**
+         * Getter for the move.
+         *
+         * @return Returns the square of the answer.
+         */
+        int getMove() {
+            return move;
+        }
+
+        /**
+         * Getter for the statistics.
+         *
+         * @return Returns the statistics of the search of the answer.
+         */
+        SearchStats getStats() {
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.BitBoards;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import de.sphrilix.reversi.model.Reversi;
+
+/**
+ * This class provides a mutable position for the machine search. Moves are
+ * executed and taken back in place, the flipped tiles of every move are kept
+ * on a preallocated stack indexed by the ply, so neither {@link #makeMove}
+ * nor {@link #undoMove()} allocates anything.
+ *
+ * The terms of the evaluation which would need a scan of the board are kept
+ * up to date by the moves: the points of the fields of both Players and
+ * their free fields, i.e., the number of empty slots around each tile. A
+ * move only looks at the placed and the flipped tiles and their
+ * neighbours.
+ */
+public class Position {
+
+    /**
+     * The maximum number of moves which can be made on a position, each move
+     * fills one empty slot.
+     */
+    public static final int MAX_PLY = Board.SIZE * Board.SIZE;
+
+    /**
+     * Bitboard of the tiles of the human.
+     */
+    private long human;
+
+    /**
+     * Bitboard of the tiles of the machine.
+     */
+    private long machine;
+
+    /**
+     * Player who is next.
+     */
+    private Player next;
+
+    /**
+     * Zobrist key of the tiles and the next Player.
+     */
+    private long hash;
+
+    /**
+     * Points of the fields of the human, see {@link Reversi}.
+     */
+    private int humanPoints;
+
+    /**
+     * Points of the fields of the machine.
+     */
+    private int machinePoints;
+
+    /**
+     * Free fields around the tiles of the human.
+     */
+    private int humanFree;
+
+    /**
+     * Free fields around the tiles of the machine.
+     */
+    private int machineFree;
+
+    /**
+     * Base-3 numbers of the occurrences of the patterns of
+     * {@link PatternEvaluator}, {@code null} until they are needed.
+     */
+    private int[] patternIndices;
+
+    /**
+     * Number of moves made on this position since its creation.
+     */
+    private int ply;
+
+    /**
+     * Squares of the made moves, indexed by ply.
+     */
+    private final int[] squares = new int[MAX_PLY];
+
+    /**
+     * Flipped tiles of the made moves, indexed by ply.
+     */
+    private final long[] flipped = new long[MAX_PLY];
+
+    /**
+     * Players which made the moves, indexed by ply.
+     */
+    private final Player[] movers = new Player[MAX_PLY];
+
+    /**
+     * Keys before the moves, indexed by ply.
+     */
+    private final long[] hashes = new long[MAX_PLY];
+
+    /**
+     * Points and free fields of both Players before the moves, four values
+     * per ply.
+     */
+    private final int[] features = new int[MAX_PLY * 4];
+
+    /**
+     * Creates a new position.
+     *
+     * @param human The bitboard of the tiles of the human.
+     * @param machine The bitboard of the tiles of the machine.
+     * @param next The Player who is next.
+     */
+    public Position(long human, long machine, Player next) {
+        if (next == null || (human & machine) != 0) {
+            throw new IllegalArgumentException("Invalid position!");
+        }
+        this.human = human;
+        this.machine = machine;
+        this.next = next;
+        hash = Zobrist.hash(human, machine, next);
+        long empty = ~(human | machine);
+        humanPoints = HeuristicEvaluator.pointsOf(human);
+        machinePoints = HeuristicEvaluator.pointsOf(machine);
+        humanFree = BitBoards.emptyNeighbours(human, empty);
+        machineFree = BitBoards.emptyNeighbours(machine, empty);
+    }
+
+    /**
+     * Creates the start position of a game. The Player who starts gets the
+     * tiles on the slots (3, 4) and (4, 3), the enemy the ones on (3, 3)
+     * and (4, 4), counted from 0.
+     *
+     * @param started The Player who makes the first move.
+     * @return Returns the position.
+     */
+    public static Position start(Player started) {
+        if (started == null) {
+            throw new IllegalArgumentException("Not existing player!");
+        }
+        long startedTiles = BitBoards.bit(3, 4) | BitBoards.bit(4, 3);
+        long enemyTiles = BitBoards.bit(3, 3) | BitBoards.bit(4, 4);
+        return started == Player.HUMAN
+                ? new Position(startedTiles, enemyTiles, started)
+                : new Position(enemyTiles, startedTiles, started);
+    }
+
+    /**
+     * Calculates the final difference of tiles of a game which is over, the
+     * empty slots counting for the winner.
+     *
+     * @param own The bitboard of the tiles of the Player in whose view the
+     *        difference is.
+     * @param enemy The bitboard of the tiles of the enemy.
+     * @return Returns the difference of tiles.
+     */
+    public static int finalDifference(long own, long enemy) {
+        int ownCount = Long.bitCount(own);
+        int enemyCount = Long.bitCount(enemy);
+        int empties = MAX_PLY - ownCount - enemyCount;
+        int diff = ownCount - enemyCount;
+        return diff > 0 ? diff + empties : diff < 0 ? diff - empties : 0;
+    }
+
+    /**
+     * Creates a copy of the given position without its move stack.
+     *
+     * @param position The position to be copied.
+     */
+    public Position(Position position) {
+        this(position.human, position.machine, position.next);
+    }
+
+    /**
+     * Getter for the tiles of the human.
+     *
+     * @return Returns the bitboard of the tiles of the human.
+     */
+    public long getHuman() {
+        return human;
+    }
+
+    /**
+     * Getter for the tiles of the machine.
+     *
+     * @return Returns the bitboard of the tiles of the machine.
+     */
+    public long getMachine() {
+        return machine;
+    }
+
+    /**
+     * Getter for the Player who is next.
+     *
+     * @return Returns the Player who is next.
+     */
+    public Player next() {
+        return next;
+    }
+
+    /**
+     * Getter for the Zobrist key of the tiles and the next Player.
+     *
+     * @return Returns the key of the position.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Getter for the number of moves made since the creation.
+     *
+     * @return Returns the current ply.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Gets the points of the fields of the tiles of the given Player.
+     *
+     * @param player The Player who's points are requested.
+     * @return Returns the sum of the points.
+     */
+    public int getPoints(Player player) {
+        return player == Player.HUMAN ? humanPoints : machinePoints;
+    }
+
+    /**
+     * Gets the free fields around the tiles of the given Player. An empty
+     * slot is counted once for every tile it is adjacent to.
+     *
+     * @param player The Player who's free fields are requested.
+     * @return Returns the number of free fields.
+     */
+    public int getFreeFields(Player player) {
+        return player == Player.HUMAN ? humanFree : machineFree;
+    }
+
+    /**
+     * Gets the bitboard of the tiles of the given Player.
+     *
+     * @param player The Player who's tiles are requested.
+     * @return Returns the bitboard of the tiles.
+     */
+    public long tilesOf(Player player) {
+        return player == Player.HUMAN ? human : machine;
+    }
+
+    /**
+     * Calculates the possible moves of the Player who is next.
+     *
+     * @return Returns the bitboard of the possible moves.
+     */
+    public long legalMoves() {
+        return legalMoves(next);
+    }
+
+    /**
+     * Calculates the possible moves of the given Player.
+     *
+     * @param player The Player who's moves are calculated.
+     * @return Returns the bitboard of the possible moves.
+     */
+    public long legalMoves(Player player) {
+        return player == Player.HUMAN
+                ? BitBoards.legalMoves(human, machine)
+                : BitBoards.legalMoves(machine, human);
+    }
+
+    /**
+     * Checks if no player can perform a move any more.
+     *
+     * @return {@code true} if and only if the game is over.
+     */
+    public boolean gameOver() {
+        return legalMoves(Player.HUMAN) == 0
+                && legalMoves(Player.MACHINE) == 0;
+    }
+
+    /**
+     * Counts the empty slots.
+     *
+     * @return Returns the number of empty slots.
+     */
+    public int getEmpties() {
+        return MAX_PLY - Long.bitCount(human | machine);
+    }
+
+    /**
+     * Executes a move of the Player who is next and determines the next
+     * Player in the same way as the Board implementations do. The move has to
+     * be possible.
+     *
+     * @param square The index of the slot, i.e., {@code row * SIZE + col}.
+     */
+    public void makeMove(int square) {
+        assert (legalMoves() & (1L << square)) != 0 : "Invalid move!";
+        Player mover = next;
+        int base = ply * 4;
+        features[base] = humanPoints;
+        features[base + 1] = machinePoints;
+        features[base + 2] = humanFree;
+        features[base + 3] = machineFree;
+
+        // The placed slot is no free field of its neighbours any more.
+        long neighbours = BitBoards.neighbours(square);
+        humanFree -= Long.bitCount(neighbours & human);
+        machineFree -= Long.bitCount(neighbours & machine);
+        long empty = ~(human | machine | (1L << square));
+
+        // The flipped tiles take their free fields and points along.
+        long flips = mover == Player.HUMAN
+                ? BitBoards.flips(human, machine, square)
+                : BitBoards.flips(machine, human, square);
+        int flippedPoints = 0;
+        int flippedFree = 0;
+        for (long f = flips; f != 0; f &= f - 1) {
+            int flipped = Long.numberOfTrailingZeros(f);
+            flippedPoints += HeuristicEvaluator.POINTS[flipped];
+            flippedFree += Long.bitCount(BitBoards.neighbours(flipped)
+                    & empty);
+        }
+        int placedPoints = HeuristicEvaluator.POINTS[square];
+        int placedFree = Long.bitCount(neighbours & empty);
+        if (mover == Player.HUMAN) {
+            human |= flips | (1L << square);
+            machine &= ~flips;
+            humanPoints += placedPoints + flippedPoints;
+            machinePoints -= flippedPoints;
+            humanFree += placedFree + flippedFree;
+            machineFree -= flippedFree;
+        } else {
+            machine |= flips | (1L << square);
+            human &= ~flips;
+            machinePoints += placedPoints + flippedPoints;
+            humanPoints -= flippedPoints;
+            machineFree += placedFree + flippedFree;
+            humanFree -= flippedFree;
+        }
+        if (patternIndices != null) {
+            updatePatterns(mover, 1L << square, flips, 1);
+        }
+        squares[ply] = square;
+        flipped[ply] = flips;
+        movers[ply] = mover;
+        hashes[ply] = hash;
+        ply++;
+
+        // Normally enemy gets next move, if not he has to miss.
+        Player enemy = mover == Player.HUMAN ? Player.MACHINE : Player.HUMAN;
+        next = legalMoves(enemy) != 0 ? enemy : mover;
+        hash ^= Zobrist.tile(mover, square) ^ Zobrist.flip(flips);
+        if (next != mover) {
+            hash ^= Zobrist.machineNext();
+        }
+    }
+
+    /**
+     * Takes back the latest move made by {@link #makeMove(int)}.
+     */
+    public void undoMove() {
+        assert ply > 0 : "No move to undo!";
+        ply--;
+        long flips = flipped[ply];
+        long placed = 1L << squares[ply];
+        Player mover = movers[ply];
+        if (mover == Player.HUMAN) {
+            human ^= flips | placed;
+            machine |= flips;
+        } else {
+            machine ^= flips | placed;
+            human |= flips;
+        }
+        if (patternIndices != null) {
+            updatePatterns(mover, placed, flips, -1);
+        }
+        next = mover;
+        hash = hashes[ply];
+        int base = ply * 4;
+        humanPoints = features[base];
+        machinePoints = features[base + 1];
+        humanFree = features[base + 2];
+        machineFree = features[base + 3];
+    }
+
+    /**
+     * Gets the base-3 numbers of the occurrences of the patterns of
+     * {@link PatternEvaluator}. They are calculated on the first call and
+     * then kept up to date by the moves.
+     *
+     * @return Returns the indices, not to be changed by the caller.
+     */
+    int[] patternIndices() {
+        if (patternIndices == null) {
+            patternIndices = PatternEvaluator.indices(machine, human);
+        }
+        return patternIndices;
+    }
+
+    /**
+     * Updates the pattern indices for a move or its undo.
+     *
+     * @param mover The Player who made the move.
+     * @param placed The bitboard of the placed tile.
+     * @param flips The bitboard of the flipped tiles.
+     * @param sign 1 for the move, -1 for its undo.
+     */
+    private void updatePatterns(Player mover, long placed, long flips,
+            int sign) {
+
+        // Digits: 0 empty, 1 machine, 2 human.
+        int digit = mover == Player.MACHINE ? 1 : 2;
+        PatternEvaluator.update(patternIndices, placed, sign * digit);
+        PatternEvaluator.update(patternIndices, flips,
+                mover == Player.MACHINE ? -sign : sign);
+    }
+
+    /**
+     * Gets the square of the latest move.
+     *
+     * @return Returns the square of the latest move.
+     */
+    public int lastMove() {
+        assert ply > 0 : "No move made!";
+        return squares[ply - 1];
+    }
+
+    /**
+     * Gets the flipped tiles of the latest move.
+     *
+     * @return Returns the bitboard of the flipped tiles of the latest move.
+     */
+    public long lastFlipped() {
+        assert ply > 0 : "No move made!";
+        return flipped[ply - 1];
+    }
+}
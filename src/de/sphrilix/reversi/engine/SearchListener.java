@@ -0,0 +1,18 @@
+package de.sphrilix.reversi.engine;
+
+/**
+ * This interface provides a listener which gets informed about every
+ * finished search of an {@link Engine}, e.g., to export the statistics to a
+ * metrics system.
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    /**
+     * Called on the searching thread after every search, before the move
+     * gets made.
+     *
+     * @param stats The statistics of the search.
+     */
+    void searchFinished(SearchStats stats);
+}
@@ -0,0 +1,24 @@
+package de.sphrilix.reversi.engine;
+
+/**
+ * Types of searches the {@link Engine} can run.
+ */
+public enum SearchMode {
+
+    /**
+     * One alpha-beta search on the calling thread.
+     */
+    SEQUENTIAL,
+
+    /**
+     * The moves of the root get split between the threads of a pool, see
+     * {@link ParallelSearch}.
+     */
+    ROOT_SPLIT,
+
+    /**
+     * Helper threads search the same position and share the transposition
+     * table, see {@link LazySmpSearch}.
+     */
+    LAZY_SMP
+}
@@ -0,0 +1,264 @@
+package de.sphrilix.reversi.engine;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the statistics of a finished search of the bot: how much
+ * it searched, how long it took, how deep it got and why it chose its move.
+ * The searches of several threads are summed up, except for the depth, the
+ * score and the principal variation, which are the ones of the result.
+ * Instances are immutable.
+ */
+public final class SearchStats {
+
+    /**
+     * Statistics of no search at all.
+     */
+    static final SearchStats NONE = new SearchStats(0, 0.0, 0, 0, 0, 0, 0,
+            0, 0, new int[0]);
+
+    /**
+     * Depth of the deepest completed iteration.
+     */
+    private final int depth;
+
+    /**
+     * Score of the chosen move.
+     */
+    private final double score;
+
+    /**
+     * Duration of the search in nanoseconds.
+     */
+    private final long nanos;
+
+    /**
+     * Number of visited nodes.
+     */
+    private final long nodes;
+
+    /**
+     * Number of evaluated leaves.
+     */
+    private final long evaluations;
+
+    /**
+     * Number of lookups in the transposition table.
+     */
+    private final long tableProbes;
+
+    /**
+     * Number of lookups which found the position.
+     */
+    private final long tableHits;
+
+    /**
+     * Number of nodes whose remaining moves were cut off.
+     */
+    private final long cutoffs;
+
+    /**
+     * Number of cutoffs caused by the first move of a node.
+     */
+    private final long firstMoveCutoffs;
+
+    /**
+     * Expected moves of both Players, starting with the chosen one.
+     */
+    private final int[] principalVariation;
+
+    /**
+     * Creates new statistics.
+     *
+     * @param depth The depth of the deepest completed iteration.
+     * @param score The score of the chosen move.
+     * @param nanos The duration of the search in nanoseconds.
+     * @param nodes The number of visited nodes.
+     * @param evaluations The number of evaluated leaves.
+     * @param tableProbes The number of lookups in the transposition table.
+     * @param tableHits The number of lookups which found the position.
+     * @param cutoffs The number of cutoffs.
+     * @param firstMoveCutoffs The number of cutoffs by the first move.
+     * @param principalVariation The expected moves, which get copied.
+     */
+    SearchStats(int depth, double score, long nanos, long nodes,
+            long evaluations, long tableProbes, long tableHits, long cutoffs,
+            long firstMoveCutoffs, int[] principalVariation) {
+        this.depth = depth;
+        this.score = score;
+        this.nanos = nanos;
+        this.nodes = nodes;
+        this.evaluations = evaluations;
+        this.tableProbes = tableProbes;
+        this.tableHits = tableHits;
+        this.cutoffs = cutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.principalVariation = principalVariation.clone();
+    }
+
+    /**
+     * Adds the counters of another search, e.g., of a helper thread.
+     *
+     * @param other The statistics of the other search.
+     * @return Returns new statistics with the summed up counters and the
+     *         depth, score, duration and principal variation of these.
+     */
+    SearchStats plus(SearchStats other) {
+        return new SearchStats(depth, score, nanos, nodes + other.nodes,
+                evaluations + other.evaluations,
+                tableProbes + other.tableProbes, tableHits + other.tableHits,
+                cutoffs + other.cutoffs,
+                firstMoveCutoffs + other.firstMoveCutoffs,
+                principalVariation);
+    }
+
+    /**
+     * Getter for the chosen move.
+     *
+     * @return Returns the square of the chosen move, or -1 if unknown.
+     */
+    public int getMove() {
+        return principalVariation.length > 0 ? principalVariation[0] : -1;
+    }
+
+    /**
+     * Getter for the depth.
+     *
+     * @return Returns the depth of the deepest completed iteration, the
+     *         number of empty slots if the game was solved.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter for the score.
+     *
+     * @return Returns the score of the chosen move in view of the machine,
+     *         the final difference of tiles if the game was solved.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Getter for the duration.
+     *
+     * @return Returns the duration of the search in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Getter for the number of visited nodes.
+     *
+     * @return Returns the number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter for the speed of the search.
+     *
+     * @return Returns the number of nodes per second, 0 if the duration is
+     *         unknown.
+     */
+    public double getNodesPerSecond() {
+        return nanos > 0 ? nodes * 1e9 / nanos : 0.0;
+    }
+
+    /**
+     * Getter for the number of evaluated leaves.
+     *
+     * @return Returns the number of calls of the evaluator for leaves.
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Getter for the number of lookups in the transposition table.
+     *
+     * @return Returns the number of lookups, 0 without table.
+     */
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    /**
+     * Getter for the number of successful lookups.
+     *
+     * @return Returns the number of lookups which found the position.
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Getter for the hit rate of the transposition table.
+     *
+     * @return Returns the share of the lookups which found the position, 0
+     *         without lookups.
+     */
+    public double getTableHitRate() {
+        return tableProbes > 0 ? (double) tableHits / tableProbes : 0.0;
+    }
+
+    /**
+     * Getter for the number of cutoffs.
+     *
+     * @return Returns the number of nodes whose remaining moves were cut
+     *         off.
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Getter for the number of cutoffs by the first move.
+     *
+     * @return Returns the number of cutoffs caused by the first move of a
+     *         node.
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * Gets the share of the cutoffs caused by the first move of a node, a
+     * measure of the move order: the closer to 1, the fewer nodes get
+     * searched in vain.
+     *
+     * @return Returns the rate, 0 without cutoffs.
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs > 0 ? (double) firstMoveCutoffs / cutoffs : 0.0;
+    }
+
+    /**
+     * Getter for the principal variation, i.e., the moves both Players are
+     * expected to make. It may end before the depth of the search if the
+     * rest was taken from the transposition table.
+     *
+     * @return Returns the squares of the moves, starting with the chosen
+     *         one.
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("depth %d, score %.2f, %d nodes, %d evaluations, "
+                + "%.3f ms, %.0f nodes/s, table hits %d/%d, cutoffs %d "
+                + "(%.1f%% first), pv %s", depth, score, nodes, evaluations,
+                nanos / 1e6, getNodesPerSecond(), tableHits, tableProbes,
+                cutoffs, 100 * getFirstMoveCutoffRate(),
+                Arrays.toString(principalVariation));
+    }
+}
@@ -0,0 +1,216 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+
+/**
+ * This class provides the 8 symmetries of the board, i.e., the rotations
+ * and reflections, which map a position onto an equivalent one with the
+ * same scores. A symmetry is a number from 0 to 7: bit 0 mirrors the rows,
+ * bit 1 the columns and bit 2 then swaps rows and columns; 0 leaves the
+ * board unchanged. Bitboards are transformed by a few shifts and masks
+ * instead of slot by slot.
+ *
+ * The canonical form of a position is its image with the smallest
+ * bitboards, so all equivalent positions share it and its key, see
+ * {@link #canonicalKey(long, long, Player)}.
+ */
+public final class Symmetry {
+
+    /**
+     * Number of symmetries.
+     */
+    public static final int COUNT = 8;
+
+    /**
+     * Bitboards of every other slot of a row, and so on, for mirroring.
+     */
+    private static final long[] MIRROR_MASKS = {0x5555555555555555L,
+            0x3333333333333333L, 0x0F0F0F0F0F0F0F0FL};
+
+    /**
+     * Utility class, no instances.
+     */
+    private Symmetry() {
+    }
+
+    /**
+     * Maps a bitboard by a symmetry.
+     *
+     * @param bits The bitboard.
+     * @param symmetry The symmetry.
+     * @return Returns the mapped bitboard.
+     */
+    public static long transform(long bits, int symmetry) {
+        if ((symmetry & 1) != 0) {
+
+            // The rows are the bytes.
+            bits = Long.reverseBytes(bits);
+        }
+        if ((symmetry & 2) != 0) {
+            bits = mirrorColumns(bits);
+        }
+        if ((symmetry & 4) != 0) {
+            bits = swapRowsAndColumns(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Maps a square by a symmetry.
+     *
+     * @param square The square, i.e., {@code row * SIZE + col}.
+     * @param symmetry The symmetry.
+     * @return Returns the mapped square.
+     */
+    public static int transform(int square, int symmetry) {
+        int row = square / Board.SIZE;
+        int col = square % Board.SIZE;
+        if ((symmetry & 1) != 0) {
+            row = Board.SIZE - 1 - row;
+        }
+        if ((symmetry & 2) != 0) {
+            col = Board.SIZE - 1 - col;
+        }
+        return (symmetry & 4) != 0 ? col * Board.SIZE + row
+                : row * Board.SIZE + col;
+    }
+
+    /**
+     * Gets the symmetry which undoes the given one.
+     *
+     * @param symmetry The symmetry.
+     * @return Returns the inverse symmetry.
+     */
+    public static int inverse(int symmetry) {
+
+        // Mirroring the rows before the swap mirrors the columns after it.
+        return (symmetry & 4) == 0 ? symmetry
+                : 4 | (symmetry & 1) << 1 | (symmetry & 2) >> 1;
+    }
+
+    /**
+     * Finds the symmetry which maps the given position onto its canonical
+     * form, the image with the smallest bitboard of the human, and of the
+     * machine on equal ones.
+     *
+     * @param human The bitboard of the tiles of the human.
+     * @param machine The bitboard of the tiles of the machine.
+     * @return Returns the symmetry, the smallest one if several lead to the
+     *         canonical form.
+     */
+    public static int canonical(long human, long machine) {
+        int best = 0;
+        long bestHuman = human;
+        long bestMachine = machine;
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            long h = transform(human, symmetry);
+            int compare = Long.compareUnsigned(h, bestHuman);
+            if (compare > 0) {
+                continue;
+            }
+            long m = transform(machine, symmetry);
+            if (compare < 0 || Long.compareUnsigned(m, bestMachine) < 0) {
+                best = symmetry;
+                bestHuman = h;
+                bestMachine = m;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Calculates the key of the canonical form of the given position, which
+     * is the same for all equivalent positions.
+     *
+     * @param human The bitboard of the tiles of the human.
+     * @param machine The bitboard of the tiles of the machine.
+     * @param next The Player who is next.
+     * @return Returns the Zobrist key of the canonical form.
+     */
+    public static long canonicalKey(long human, long machine, Player next) {
+        int symmetry = canonical(human, machine);
+        return Zobrist.hash(transform(human, symmetry),
+                transform(machine, symmetry), next);
+    }
+
+    /**
+     * Finds the symmetries which map the given position onto itself.
+     *
+     * @param human The bitboard of the tiles of the human.
+     * @param machine The bitboard of the tiles of the machine.
+     * @return Returns the set of symmetries, bit {@code s} for symmetry
+     *         {@code s}. Bit 0 is always set.
+     */
+    public static int symmetries(long human, long machine) {
+        int symmetries = 1;
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            if (transform(human, symmetry) == human
+                    && transform(machine, symmetry) == machine) {
+                symmetries |= 1 << symmetry;
+            }
+        }
+        return symmetries;
+    }
+
+    /**
+     * Removes the moves which lead to the same position as another move up
+     * to symmetry. Of equivalent moves the one on the lowest square is
+     * kept.
+     *
+     * @param human The bitboard of the tiles of the human.
+     * @param machine The bitboard of the tiles of the machine.
+     * @param moves The bitboard of the possible moves.
+     * @return Returns the bitboard of the moves to be searched.
+     */
+    public static long distinctMoves(long human, long machine, long moves) {
+        int symmetries = symmetries(human, machine) & ~1;
+        if (symmetries == 0) {
+            return moves;
+        }
+        long distinct = moves;
+        for (long m = moves; m != 0; m &= m - 1) {
+            int square = Long.numberOfTrailingZeros(m);
+            for (int s = symmetries; s != 0; s &= s - 1) {
+                if (transform(square, Integer.numberOfTrailingZeros(s))
+                        < square) {
+                    distinct &= ~(1L << square);
+                    break;
+                }
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Mirrors the columns of a bitboard by swapping single slots, pairs and
+     * quadruples of every row.
+     *
+     * @param bits The bitboard.
+     * @return Returns the mirrored bitboard.
+     */
+    private static long mirrorColumns(long bits) {
+        for (int i = 0, shift = 1; i < MIRROR_MASKS.length; i++, shift *= 2) {
+            long mask = MIRROR_MASKS[i];
+            bits = (bits >>> shift) & mask | (bits & mask) << shift;
+        }
+        return bits;
+    }
+
+    /**
+     * Swaps rows and columns of a bitboard, i.e., mirrors it at the diagonal
+     * of the first slot, by exchanging blocks of 4, 2 and 1 slots.
+     *
+     * @param bits The bitboard.
+     * @return Returns the swapped bitboard.
+     */
+    private static long swapRowsAndColumns(long bits) {
+        long t = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));
+        bits ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (bits ^ (bits << 14));
+        bits ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (bits ^ (bits << 7));
+        bits ^= t ^ (t >>> 7);
+        return bits;
+    }
+}
@@ -0,0 +1,549 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class plays games between two settings of the bot, e.g., to compare
+ * levels or evaluators. The games start from the positions after
+ * {@link #OPENING_PLIES} moves which are distinct up to symmetry, see
+ * {@link Symmetry}, in a shuffled order, and every opening is
+ * played twice with swapped colors, so neither setting profits from a good
+ * opening. The games run in parallel, each thread with engines of its own,
+ * and every finished game gets written to a file at once, so the memory
+ * does not grow with the number of games. At the end the wins, draws and
+ * losses of the first setting are reported with its Elo difference to the
+ * second one and the average time per move of both.
+ *
+ * Each finished game is one line of the file: the number of the game, the
+ * names of the settings playing black and white, the final tiles of black
+ * and white, and the moves in the usual notation, e.g., {@code f5}.
+ *
+ * Usage: {@code Tournament games output first second [threads] [seed]},
+ * where a setting is a list like
+ * {@code level=4,time=0,solve=14,eval=file,book=file},
+ * see {@link Settings#parse(String)}.
+ */
+public class Tournament {
+
+    /**
+     * Number of moves of the openings.
+     */
+    public static final int OPENING_PLIES = 6;
+
+    /**
+     * First setting, whose results are reported.
+     */
+    private final Settings first;
+
+    /**
+     * Second setting.
+     */
+    private final Settings second;
+
+    /**
+     * Moves of the openings the games start from.
+     */
+    private final List<int[]> openings;
+
+    /**
+     * Number of wins of the first setting.
+     */
+    private final AtomicInteger wins = new AtomicInteger();
+
+    /**
+     * Number of draws.
+     */
+    private final AtomicInteger draws = new AtomicInteger();
+
+    /**
+     * Number of losses of the first setting.
+     */
+    private final AtomicInteger losses = new AtomicInteger();
+
+    /**
+     * Time of the moves of both settings in nanoseconds.
+     */
+    private final LongAdder[] nanos = {new LongAdder(), new LongAdder()};
+
+    /**
+     * Number of moves of both settings.
+     */
+    private final LongAdder[] moves = {new LongAdder(), new LongAdder()};
+
+    /**
+     * Creates a new tournament.
+     *
+     * @param first The first setting, whose results are reported.
+     * @param second The second setting.
+     * @param seed The seed of the order of the openings.
+     */
+    public Tournament(Settings first, Settings second, long seed) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException();
+        }
+        this.first = first;
+        this.second = second;
+        openings = openings(OPENING_PLIES);
+        Collections.shuffle(openings, new Random(seed));
+    }
+
+    /**
+     * Plays the given number of games on the given number of threads and
+     * appends them to the given writer. Game {@code 2k} and {@code 2k + 1}
+     * start from the same opening with swapped colors; the first setting is
+     * black in the even games.
+     *
+     * @param games The number of games.
+     * @param threads The number of threads.
+     * @param out The writer of the finished games, in the order they finish.
+     * @throws IOException If a game cannot be written.
+     * @throws InterruptedException If interrupted while waiting for the
+     *         games.
+     */
+    public void play(int games, int threads, Writer out) throws IOException,
+            InterruptedException {
+        if (games < 0 || threads < 1) {
+            throw new IllegalArgumentException("Invalid games or threads!");
+        }
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    Engine[] engines = {first.createEngine(),
+                            second.createEngine()};
+                    for (int game = next.getAndIncrement(); game < games;
+                            game = next.getAndIncrement()) {
+                        String record = play(game, engines);
+                        synchronized (out) {
+                            out.write(record);
+                            out.write('\n');
+                            out.flush();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Getter for the wins.
+     *
+     * @return Returns the number of wins of the first setting.
+     */
+    public int getWins() {
+        return wins.get();
+    }
+
+    /**
+     * Getter for the draws.
+     *
+     * @return Returns the number of draws.
+     */
+    public int getDraws() {
+        return draws.get();
+    }
+
+    /**
+     * Getter for the losses.
+     *
+     * @return Returns the number of losses of the first setting.
+     */
+    public int getLosses() {
+        return losses.get();
+    }
+
+    /**
+     * Gets the share of the points of the first setting, a win counting 1
+     * and a draw 1/2.
+     *
+     * @return Returns the share, 0.5 without games.
+     */
+    public double getScore() {
+        int games = getWins() + getDraws() + getLosses();
+        return games > 0 ? (getWins() + 0.5 * getDraws()) / games : 0.5;
+    }
+
+    /**
+     * Estimates how much stronger the first setting is, in Elo.
+     *
+     * @return Returns the Elo difference, infinite if one setting won all
+     *         games.
+     */
+    public double getElo() {
+        return elo(getScore());
+    }
+
+    /**
+     * Estimates the 95% confidence interval of the Elo difference, from the
+     * standard error of the score of a game. If one setting won all games,
+     * the Elo difference is infinite and the games tell nothing about how
+     * far off it is, so the error is infinite as well.
+     *
+     * @return Returns the half width of the interval in Elo, i.e., the
+     *         larger distance of its bounds to {@link #getElo()}, infinite
+     *         without games or if one setting won all of them.
+     */
+    public double getEloError() {
+        int games = getWins() + getDraws() + getLosses();
+        double score = getScore();
+        if (games == 0 || score <= 0 || score >= 1) {
+
+            // Otherwise the variance is 0 and the error infinity - infinity.
+            return Double.POSITIVE_INFINITY;
+        }
+        double variance = (getWins() * (1 - score) * (1 - score)
+                + getDraws() * (0.5 - score) * (0.5 - score)
+                + getLosses() * score * score) / games;
+        double error = 1.96 * Math.sqrt(variance / games);
+        double elo = elo(score);
+        return Math.max(elo(Math.min(1, score + error)) - elo,
+                elo - elo(Math.max(0, score - error)));
+    }
+
+    /**
+     * Gets the average time per move of a setting.
+     *
+     * @param setting 0 for the first setting, 1 for the second one.
+     * @return Returns the time in milliseconds, 0 without moves.
+     */
+    public double getMillisPerMove(int setting) {
+        long count = moves[setting].sum();
+        return count > 0 ? nanos[setting].sum() / 1e6 / count : 0.0;
+    }
+
+    /**
+     * Runs a tournament and prints its results.
+     *
+     * @param args The number of games, the output file, the first and the
+     *        second setting, the number of threads and the seed of the
+     *        order of the openings, the last two optional.
+     * @throws IOException If an evaluator cannot be loaded or the games
+     *         cannot be written.
+     * @throws InterruptedException If interrupted while playing.
+     */
+    public static void main(String[] args) throws IOException,
+            InterruptedException {
+        if (args.length < 4) {
+            System.err.println("Usage: Tournament games output first second "
+                    + "[threads] [seed]");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[0]);
+        Path output = Paths.get(args[1]);
+        Settings first = Settings.parse(args[2]);
+        Settings second = Settings.parse(args[3]);
+        int threads = args.length > 4 ? Integer.parseInt(args[4])
+                : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1L;
+        Tournament tournament = new Tournament(first, second, seed);
+        long start = System.nanoTime();
+        try (Writer out = Files.newBufferedWriter(output,
+                StandardCharsets.US_ASCII)) {
+            tournament.play(games, threads, out);
+        }
+        System.out.printf("%s vs %s: %d games in %.1f s%n", first, second,
+                games, (System.nanoTime() - start) / 1e9);
+        System.out.printf("wins %d, draws %d, losses %d, score %.1f%%%n",
+                tournament.getWins(), tournament.getDraws(),
+                tournament.getLosses(), 100 * tournament.getScore());
+        System.out.printf("Elo %+.0f +- %.0f (95%%)%n", tournament.getElo(),
+                tournament.getEloError());
+        System.out.printf("time per move %.2f ms vs %.2f ms%n",
+                tournament.getMillisPerMove(0),
+                tournament.getMillisPerMove(1));
+    }
+
+    /**
+     * Plays a game and counts its result.
+     *
+     * @param game The number of the game.
+     * @param engines The engines of the first and the second setting.
+     * @return Returns the line of the game.
+     */
+    private String play(int game, Engine[] engines) {
+        Position position = Position.start(Player.HUMAN);
+        for (int square : openings.get(game / 2 % openings.size())) {
+            position.makeMove(square);
+        }
+
+        // Black is the human of the positions, the first setting in the
+        // even games.
+        int blackSetting = game % 2;
+        int[] levels = {first.level, second.level};
+        while (!position.gameOver()) {
+            int setting = position.next() == Player.HUMAN ? blackSetting
+                    : 1 - blackSetting;
+            long start = System.nanoTime();
+            int square = engines[setting].bestMove(position, levels[setting]);
+            nanos[setting].add(System.nanoTime() - start);
+            moves[setting].increment();
+            position.makeMove(square);
+        }
+        int black = Long.bitCount(position.getHuman());
+        int white = Long.bitCount(position.getMachine());
+        int firstTiles = blackSetting == 0 ? black : white;
+        int secondTiles = blackSetting == 0 ? white : black;
+        if (firstTiles > secondTiles) {
+            wins.incrementAndGet();
+        } else if (firstTiles < secondTiles) {
+            losses.incrementAndGet();
+        } else {
+            draws.incrementAndGet();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(game).append(' ')
+                .append(blackSetting == 0 ? first : second).append(' ')
+                .append(blackSetting == 0 ? second : first).append(' ')
+                .append(black).append(' ').append(white).append(' ');
+        int[] line = new int[position.getPly()];
+        for (int ply = line.length - 1; ply >= 0; ply--) {
+            line[ply] = position.lastMove();
+            position.undoMove();
+        }
+        for (int square : line) {
+            sb.append(notation(square));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collects the moves leading to the positions after the given number of
+     * moves from the start position which are distinct up to symmetry, in a
+     * fixed order.
+     *
+     * @param plies The number of moves.
+     * @return Returns the moves of every position.
+     */
+    static List<int[]> openings(int plies) {
+        Set<String> seen = new LinkedHashSet<>();
+        List<int[]> openings = new ArrayList<>();
+        collect(Position.start(Player.HUMAN), new int[plies], 0, seen,
+                openings);
+        return openings;
+    }
+
+    /**
+     * Collects the moves of the distinct positions below the given one.
+     *
+     * @param position The position, restored afterwards.
+     * @param line The moves leading to the position.
+     * @param ply The number of moves made.
+     * @param seen The keys of the collected positions.
+     * @param openings The collected moves.
+     */
+    private static void collect(Position position, int[] line, int ply,
+            Set<String> seen, List<int[]> openings) {
+        if (ply == line.length) {
+            int symmetry = Symmetry.canonical(position.getHuman(),
+                    position.getMachine());
+            String key = Symmetry.transform(position.getHuman(), symmetry)
+                    + ":" + Symmetry.transform(position.getMachine(), symmetry)
+                    + ":" + position.next();
+            if (seen.add(key)) {
+                openings.add(line.clone());
+            }
+            return;
+        }
+        for (long m = position.legalMoves(); m != 0; m &= m - 1) {
+            line[ply] = Long.numberOfTrailingZeros(m);
+            position.makeMove(line[ply]);
+            collect(position, line, ply + 1, seen, openings);
+            position.undoMove();
+        }
+    }
+
+    /**
+     * Gets the usual notation of a square, the column as letter and the row
+     * as number.
+     *
+     * @param square The square.
+     * @return Returns the notation, e.g., {@code f5}.
+     */
+    static String notation(int square) {
+        return "" + (char) ('a' + square % Board.SIZE)
+                + (square / Board.SIZE + 1);
+    }
+
+    /**
+     * Converts a score into an Elo difference.
+     *
+     * @param score The share of the points.
+     * @return Returns the Elo difference.
+     */
+    private static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * This class holds a setting of the bot in a tournament. Instances are
+     * immutable.
+     */
+    public static final class Settings {
+
+        /**
+         * Text the setting was parsed from, which is its name.
+         */
+        private final String name;
+
+        /**
+         * Depth of the search if there is no time limit.
+         */
+        private final int level;
+
+        /**
+         * Time per move in milliseconds, 0 to search with the level.
+         */
+        private final long timeLimit;
+
+        /**
+         * Number of empty slots from which on the game is solved.
+         */
+        private final int endgameEmpties;
+
+        /**
+         * Evaluator of the search, shared by all engines of this setting.
+         */
+        private final Evaluator evaluator;
+
+        /**
+         * Book of the opening, {@code null} if none.
+         */
+        private final OpeningBook book;
+
+        /**
+         * Creates a new setting.
+         *
+         * @param name The name of the setting.
+         * @param level The depth of the search if there is no time limit.
+         * @param timeLimit The time per move in milliseconds, 0 to search
+         *        with the level.
+         * @param endgameEmpties The number of empty slots from which on the
+         *        game is solved, 0 to never solve.
+         * @param evaluator The evaluator of the search, which must not keep
+         *        a state of its own.
+         * @param book The book of the opening, {@code null} if none.
+         */
+        public Settings(String name, int level, long timeLimit,
+                int endgameEmpties, Evaluator evaluator, OpeningBook book) {
+            if (name == null || name.contains(" ") || level < 1
+                    || timeLimit < 0 || endgameEmpties < 0
+                    || evaluator == null) {
+                throw new IllegalArgumentException("Invalid setting!");
+            }
+            this.name = name;
+            this.level = level;
+            this.timeLimit = timeLimit;
+            this.endgameEmpties = endgameEmpties;
+            this.evaluator = evaluator;
+            this.book = book;
+        }
+
+        /**
+         * Parses a setting from a comma separated list of keys and values:
+         * {@code level} for the depth, standard 3, {@code time} for the time
+         * per move in milliseconds, standard 0, {@code solve} for the empty
+         * slots from which on the game is solved, standard
+         * {@link EndgameSolver#DEFAULT_EMPTIES}, and {@code eval} for a
+         * weights file of a {@link PatternEvaluator}, standard the
+         * {@link IncrementalEvaluator}, and {@code book} for an
+         * {@link OpeningBook} file, standard none.
+         *
+         * @param text The list, e.g., {@code level=5,eval=weights.bin}.
+         * @return Returns the setting, named by the text.
+         * @throws IOException If the weights or the book file cannot be
+         *         read.
+         */
+        public static Settings parse(String text) throws IOException {
+            int level = 3;
+            long timeLimit = 0;
+            int endgameEmpties = EndgameSolver.DEFAULT_EMPTIES;
+            Evaluator evaluator = new IncrementalEvaluator();
+            OpeningBook book = null;
+            for (String entry : text.split(",")) {
+                String[] pair = entry.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Invalid entry "
+                            + entry);
+                }
+                switch (pair[0]) {
+                    case "level":
+                        level = Integer.parseInt(pair[1]);
+                        break;
+                    case "time":
+                        timeLimit = Long.parseLong(pair[1]);
+                        break;
+                    case "solve":
+                        endgameEmpties = Integer.parseInt(pair[1]);
+                        break;
+                    case "eval":
+                        evaluator = PatternEvaluator.load(Paths.get(pair[1]));
+                        break;
+                    case "book":
+                        book = OpeningBook.open(Paths.get(pair[1]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown key "
+                                + pair[0]);
+                }
+            }
+            return new Settings(text, level, timeLimit, endgameEmpties,
+                    evaluator, book);
+        }
+
+        /**
+         * Creates an engine with this setting.
+         *
+         * @return Returns the engine.
+         */
+        Engine createEngine() {
+            Engine engine = new Engine(evaluator);
+            engine.setTimeLimit(timeLimit);
+            engine.setEndgameEmpties(endgameEmpties);
+            engine.setOpeningBook(book);
+            return engine;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package de.sphrilix.reversi.engine;
+
+import java.util.Arrays;
+
+/**
+ * This class provides a fixed-size transposition table of searched
+ * positions, indexed by their {@link Zobrist} key. The number of entries is a
+ * power of two, every key has exactly one slot. A slot is replaced by a new
+ * entry if it is empty, holds the same position, stems from an older search
+ * or was searched with at most the depth of the new entry.
+ *
+ * The table may be shared by searches on several threads without locking.
+ * An entry consists of three words: the score, the packed data and the key
+ * XOR both of them. Entries mixed up by concurrent writes do not match the
+ * key any more and are treated as missing.
+ */
+public class TranspositionTable {
+
+    /**
+     * The standard size of a table in megabytes.
+     */
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    /**
+     * Words of an entry: checked key, score and packed data.
+     */
+    private static final int WORDS = 3;
+
+    /**
+     * All types of bounds, indexed by their ordinal.
+     */
+    private static final Bound[] BOUNDS = Bound.values();
+
+    /**
+     * Bit of the packed data marking a used slot.
+     */
+    private static final long USED = 1L << 25;
+
+    /**
+     * Mask to get the slot of a key.
+     */
+    private final int mask;
+
+    /**
+     * The entries, {@link #WORDS} words each.
+     */
+    private final long[] entries;
+
+    /**
+     * Generation of the current search, to recognize old entries.
+     */
+    private volatile int generation;
+
+    /**
+     * Creates a new table.
+     *
+     * @param megabytes The size of the table in megabytes, at least 1.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Size must be at least 1 MB!");
+        }
+        long capacity = Long.highestOneBit((long) megabytes * 1024 * 1024
+                / (WORDS * Long.BYTES));
+        capacity = Math.min(capacity, Integer.highestOneBit(
+                Integer.MAX_VALUE / WORDS));
+        mask = (int) capacity - 1;
+        entries = new long[(int) capacity * WORDS];
+    }
+
+    /**
+     * Getter for the number of entries.
+     *
+     * @return Returns the number of entries the table can hold.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Starts a new search. Entries of former searches are kept, but get
+     * replaced in favour of new ones.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0L);
+    }
+
+    /**
+     * Looks up the entry of the given key.
+     *
+     * @param key The key of the position.
+     * @param entry The entry to be filled with the stored values.
+     * @return Returns {@code true} if and only if the position is stored
+     *         and the entry has been filled.
+     */
+    public boolean probe(long key, Entry entry) {
+        int index = ((int) key & mask) * WORDS;
+        long check = entries[index];
+        long score = entries[index + 1];
+        long data = entries[index + 2];
+        if ((data & USED) == 0 || (check ^ score ^ data) != key) {
+            return false;
+        }
+        entry.depth = (int) (data & 0xFF);
+        entry.bound = BOUNDS[(int) (data >>> 8) & 0x3];
+        entry.move = (int) ((data >>> 10) & 0x7F) - 1;
+        entry.score = Double.longBitsToDouble(score);
+        return true;
+    }
+
+    /**
+     * Stores a searched position, if the replacement policy allows it.
+     *
+     * @param key The key of the position.
+     * @param depth The depth the position was searched with.
+     * @param bound The type of the score.
+     * @param score The score of the position.
+     * @param move The square of the best move, or -1 if unknown.
+     */
+    public void store(long key, int depth, Bound bound, double score,
+            int move) {
+        int index = ((int) key & mask) * WORDS;
+        long check = entries[index];
+        long oldScore = entries[index + 1];
+        long oldData = entries[index + 2];
+        int currentGeneration = generation;
+        if ((oldData & USED) != 0 && (check ^ oldScore ^ oldData) != key
+                && ((oldData >>> 17) & 0xFF) == currentGeneration
+                && (oldData & 0xFF) > depth) {
+            return;
+        }
+        long bits = Double.doubleToRawLongBits(score);
+        long data = USED | (long) currentGeneration << 17
+                | (long) (move + 1) << 10 | (long) bound.ordinal() << 8
+                | depth;
+        entries[index] = key ^ bits ^ data;
+        entries[index + 1] = bits;
+        entries[index + 2] = data;
+    }
+
+    /**
+     * This class provides the values of a stored position. A search reuses
+     * one instance for all of its lookups.
+     */
+    public static class Entry {
+
+        /**
+         * Depth the position was searched with.
+         */
+        private int depth;
+
+        /**
+         * Type of the score.
+         */
+        private Bound bound;
+
+        /**
+         * Score of the position.
+         */
+        private double score;
+
+        /**
+         * Square of the best move, or -1 if unknown.
+         */
+        private int move;
+
+        /**
+         * Getter for the depth.
+         *
+         * @return Returns the depth the position was searched with.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Getter for the bound.
+         *
+         * @return Returns the type of the score.
+         */
+        public Bound getBound() {
+            return bound;
+        }
+
+        /**
+         * Getter for the score.
+         *
+         * @return Returns the score of the position.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * Getter for the best move.
+         *
+         * @return Returns the square of the best move, or -1 if unknown.
+         */
+        public int getMove() {
+            return move;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.Player;
+import java.util.SplittableRandom;
+
+/**
+ * This class provides the Zobrist keys of positions. The key of a position
+ * is the XOR of a random number for every tile on the board, depending on
+ * the slot and the owner, and a random number if the machine is next. A move
+ * changes the key by the numbers of the changed slots only.
+ */
+public final class Zobrist {
+
+    /**
+     * Seed of the random numbers, fixed so keys are the same in every run.
+     */
+    private static final long SEED = 0x5DEECE66DL;
+
+    /**
+     * Random numbers of the human tiles, indexed by slot.
+     */
+    private static final long[] HUMAN = new long[Board.SIZE * Board.SIZE];
+
+    /**
+     * Random numbers of the machine tiles, indexed by slot.
+     */
+    private static final long[] MACHINE = new long[Board.SIZE * Board.SIZE];
+
+    /**
+     * Random number of the machine being next.
+     */
+    private static final long MACHINE_NEXT;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < HUMAN.length; i++) {
+            HUMAN[i] = random.nextLong();
+            MACHINE[i] = random.nextLong();
+        }
+        MACHINE_NEXT = random.nextLong();
+    }
+
+    /**
+     * Utility class, no instances.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Calculates the key of the given position from scratch.
+     *
+     * @param human The bitboard of the tiles of the human.
+     * @param machine The bitboard of the tiles of the machine.
+     * @param next The Player who is next.
+     * @return Returns the key of the position.
+     */
+    public static long hash(long human, long machine, Player next) {
+        long hash = next == Player.MACHINE ? MACHINE_NEXT : 0L;
+        for (long t = human; t != 0; t &= t - 1) {
+            hash ^= HUMAN[Long.numberOfTrailingZeros(t)];
+        }
+        for (long t = machine; t != 0; t &= t - 1) {
+            hash ^= MACHINE[Long.numberOfTrailingZeros(t)];
+        }
+        return hash;
+    }
+
+    /**
+     * Gets the random number of a tile of the given Player.
+     *
+     * @param player The owner of the tile.
+     * @param square The index of the slot.
+     * @return Returns the random number of the tile.
+     */
+    public static long tile(Player player, int square) {
+        return player == Player.HUMAN ? HUMAN[square] : MACHINE[square];
+    }
+
+    /**
+     * Calculates the change of the key if the given tiles get flipped.
+     *
+     * @param flipped The bitboard of the flipped tiles.
+     * @return Returns the value to XOR the key with.
+     */
+    public static long flip(long flipped) {
+        long change = 0L;
+        for (long t = flipped; t != 0; t &= t - 1) {
+            int square = Long.numberOfTrailingZeros(t);
+            change ^= HUMAN[square] ^ MACHINE[square];
+        }
+        return change;
+    }
+
+    /**
+     * Gets the random number of the machine being next.
+     *
+     * @return Returns the value to XOR the key with if the next Player
+     *         changes.
+     */
+    public static long machineNext() {
+        return MACHINE_NEXT;
+    }
+}
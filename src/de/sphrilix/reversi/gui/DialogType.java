@@ -33,5 +33,10 @@ public enum DialogType {
     /**
      * Tie dialog.
      */
-    TIE
+    TIE,
+
+    /**
+     * Failed machine move dialog.
+     */
+    MACHINE_MOVE_FAILED
 }
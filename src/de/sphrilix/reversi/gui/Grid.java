@@ -1,8 +1,12 @@
 package de.sphrilix.reversi.gui;
 
+import de.sphrilix.reversi.engine.BitBoardReversi;
+import de.sphrilix.reversi.engine.GameHistory;
+import de.sphrilix.reversi.engine.GameSnapshot;
+import de.sphrilix.reversi.engine.ParallelSearch;
+import de.sphrilix.reversi.engine.SearchMode;
 import de.sphrilix.reversi.model.Board;
 import de.sphrilix.reversi.model.Player;
-import de.sphrilix.reversi.model.Reversi;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -12,10 +16,33 @@ import java.awt.Color;
 import java.awt.GridLayout;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.Stack;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class Grid extends JPanel {
 
+    /**
+     * Pool of threads the bot searches with, leaving one processor for the
+     * GUI.
+     */
+    private static final ForkJoinPool SEARCH_POOL =
+            ParallelSearch.createPool(ParallelSearch.defaultParallelism());
+
+    /**
+     * Executor of the machine moves, a single daemon thread shared by all
+     * games.
+     */
+    private static final ExecutorService MACHINE_MOVES =
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "machine-move");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     /**
      * The actual selected level in the MainFrame.
      */
@@ -29,13 +56,13 @@ public class Grid extends JPanel {
      */
     private Board board;
     /**
-     * Stack of the past moves.
+     * Moves of the game, which can be taken back and made again.
      */
-    private Stack<Board> pastMoves;
+    private GameHistory history;
     /**
-     * Thread which executes the machine move.
+     * Result of the running machine move, {@code null} if none.
      */
-    private MachineMoveThread thread;
+    private CompletableFuture<Board> pending;
     /**
      * 2d array which implements the gui of the board.
      */
@@ -47,10 +74,10 @@ public class Grid extends JPanel {
      */
     public Grid() {
         setLayout(new GridLayout(board.SIZE, board.SIZE));
-        pastMoves = new Stack<Board>();
         GridListener gridListener = new GridListener();
         allowedToListen = true;
-        board = new Reversi();
+        history = new GameHistory(createBoard(Player.HUMAN));
+        board = history.getBoard();
         for (int i = 0; i < board.SIZE; i++) {
             for (int j = 0; j < board.SIZE; j++) {
                 slots[i][j] = new Slot(i, j);
@@ -65,8 +92,8 @@ public class Grid extends JPanel {
 
     /**
      * Updates the slots according to the actual board of the grid, updates the
-     * counter of the human and machine in the MainFrame and sets the undo
-     * button to enable if there are moves to undo.
+     * counter of the human and machine in the MainFrame and enables the undo
+     * and redo buttons if there are moves to undo or redo.
      */
     private void update() {
 
@@ -98,11 +125,13 @@ public class Grid extends JPanel {
 
             // Get the components which need to be updated.
             JButton undo = mainFrame.getUndo();
+            JButton redo = mainFrame.getRedo();
             JLabel humanTiles = mainFrame.getHumanTiles();
             JLabel machineTiles = mainFrame.getMachineTiles();
 
             // Update the components.
-            undo.setEnabled(!pastMoves.empty());
+            undo.setEnabled(history.previousMove(Player.HUMAN) >= 0);
+            redo.setEnabled(history.nextMove(Player.HUMAN) >= 0);
             humanTiles.setText(board.getNumberOfHumanTiles() + "");
             machineTiles.setText(board.getNumberOfMachineTiles() + "");
         }
@@ -112,7 +141,8 @@ public class Grid extends JPanel {
      * Executes a move of the human Player on the clicked slot, instantly it
      * executes while the next Player is the bot, the best calculated
      * move for the bot corresponding to the actual level selected level in
-     * the MainFrame of the bot.
+     * the MainFrame of the bot. If the bot is next since its move failed,
+     * it tries again instead.
      *
      * @param row Row of the clicked slot.
      * @param col Column of the clicked slot.
@@ -122,29 +152,26 @@ public class Grid extends JPanel {
             throw new IllegalArgumentException();
         }
         board.setLevel(level);
-        if (!gameOver()) {
+        if (!gameOver() && board.next() == Player.MACHINE) {
+            startMachineMove();
+        } else if (!gameOver()) {
             Board b = board.clone();
             b = b.move(row + 1, col + 1);
 
             // Don't execute a illegal move.
             if (b != null) {
 
-                // Push the latest move on the Stack.
-                pastMoves.push(board);
-
-                // Execute a move of the human Player.
-                board = b.clone();
+                // Execute a move of the human Player and keep it.
+                history.add(b);
+                board = b;
 
                 // Update the Frame.
                 update();
                 if (!gameOver()) {
                     if (board.next() == Player.MACHINE) {
 
-                        // Execute a machine move in separate Thread.
-                        thread = new MachineMoveThread();
-
-                        // Start the Thread.
-                        thread.start();
+                        // Execute a machine move on the executor.
+                        startMachineMove();
 
                         // Update the Frame
                         update();
@@ -155,6 +182,7 @@ public class Grid extends JPanel {
                          * another move.
                          */
                         allowedToListen = true;
+                        startPondering();
                         createMessage(DialogType.MACHINE_HAS_TO_MISS);
                     }
                 }
@@ -203,6 +231,12 @@ public class Grid extends JPanel {
                 JOptionPane.showMessageDialog(null,
                         "Machine has to miss a turn!");
                 break;
+            case MACHINE_MOVE_FAILED:
+                JOptionPane.showMessageDialog(null,
+                        "Machine could not move! \n Click to let it try "
+                                + "again or undo your move.",
+                        "Machine Move Failed", JOptionPane.ERROR_MESSAGE);
+                break;
             default:
                 throw new IllegalArgumentException();
         }
@@ -212,9 +246,9 @@ public class Grid extends JPanel {
      * Creates a new Reversi game.
      */
     public void createNewGame() {
-        killThread();
-        pastMoves.clear();
-        board = new Reversi();
+        cancelMachineMove();
+        history = new GameHistory(createBoard(Player.HUMAN));
+        board = history.getBoard();
         update();
     }
 
@@ -223,17 +257,19 @@ public class Grid extends JPanel {
      * starts the game, the first move of the bot gets execute.
      */
     public void switchStarted() {
-        killThread();
-        pastMoves.clear();
+        cancelMachineMove();
         switch (board.getFirstPlayer()) {
             case MACHINE:
-                board = new Reversi(Player.HUMAN);
+                history = new GameHistory(createBoard(Player.HUMAN));
+                board = history.getBoard();
                 break;
             case HUMAN:
-                board = new Reversi(Player.MACHINE);
+                history = new GameHistory(createBoard(Player.MACHINE));
+                board = history.getBoard();
 
                 // Execute instantly the first move of the bot.
-                board = board.machineMove();
+                allowedToListen = false;
+                startMachineMove();
                 break;
             default:
                 throw new IllegalStateException();
@@ -241,50 +277,178 @@ public class Grid extends JPanel {
         update();
     }
 
+    /**
+     * Creates a new board for a game, whose bot searches with the pool of
+     * the grid.
+     *
+     * @param started The player who starts the game.
+     * @return Returns the new board.
+     */
+    private static BitBoardReversi createBoard(Player started) {
+        BitBoardReversi board = new BitBoardReversi(started);
+        board.setPool(SEARCH_POOL);
+        board.setSearchMode(SearchMode.ROOT_SPLIT);
+        return board;
+    }
+
     /**
      * Setter for the actual level of the bot.
      *
      * @param level The level to be set.
      */
     public void setLevel(int level) {
-        if (level < 1 || level > 5) {
+        if (level < 1 || level > BitBoardReversi.MAX_LEVEL) {
             throw new IllegalArgumentException();
         }
         this.level = level;
     }
 
     /**
-     * Undo the latest move, by popping the last board of the Stack and
-     * setting this the actual board.
+     * Getter for the actual level of the bot.
+     *
+     * @return Returns the level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Saves the game with all its moves and the level to the given file,
+     * see {@link GameSnapshot}. A running machine move is not saved, it
+     * starts again when the game gets loaded.
+     *
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        GameSnapshot.save(history, level, file);
+    }
+
+    /**
+     * Loads a game saved by {@link #save(Path)} and resumes it. If the
+     * machine is next, it moves at once.
+     *
+     * @param file The file.
+     * @throws IOException If the file cannot be read or is no saved game.
+     */
+    public void load(Path file) throws IOException {
+        GameSnapshot snapshot = GameSnapshot.read(file);
+        GameHistory loaded = snapshot.restore(createBoard(
+                snapshot.getStarted()));
+        cancelMachineMove();
+        history = loaded;
+        board = history.getBoard();
+        level = snapshot.getLevel();
+        allowedToListen = false;
+        update();
+        checkAfterMachineMove();
+    }
+
+    /**
+     * Undo the latest move of the human and the moves of the machine after
+     * it, by restoring the board before it from the history.
      */
     public void undo() {
-        killThread();
-        Board lastMOve = pastMoves.pop();
-        board = lastMOve.clone();
+        cancelMachineMove();
+        board = history.seek(history.previousMove(Player.HUMAN));
         allowedToListen = true;
+        startPondering();
+        update();
+    }
+
+    /**
+     * Redo the latest undone move of the human and the moves of the machine
+     * after it. If the machine had not moved yet, it moves now.
+     */
+    public void redo() {
+        cancelMachineMove();
+        history.seek(history.nextMove(Player.HUMAN) + 1);
+        int nextHumanMove = history.nextMove(Player.HUMAN);
+        board = history.seek(nextHumanMove >= 0 ? nextHumanMove
+                : history.getLength());
+        allowedToListen = false;
         update();
+        checkAfterMachineMove();
     }
 
     /**
      * Checks after a machine move if the next player is the machine. If so
-     * execute another machine move in a separate Thread.
+     * execute another machine move on the executor.
      */
     private void checkAfterMachineMove() {
         if (!gameOver() && board.next() == Player.MACHINE) {
-            thread = new MachineMoveThread();
-            thread.start();
+            startMachineMove();
         } else if (!gameOver() && board.next() == Player.HUMAN) {
+            startPondering();
+            allowedToListen = true;
+        }
+    }
+
+    /**
+     * Lets the bot think on the time of the human until the human has made
+     * the next move, if the board supports it.
+     */
+    private void startPondering() {
+        if (board instanceof BitBoardReversi) {
+            ((BitBoardReversi) board).startPondering();
+        }
+    }
+
+    /**
+     * Starts the machine move on the actual board on the executor, so the
+     * event dispatch thread never searches. When it is done and has not
+     * been cancelled, the board gets replaced on the event dispatch thread.
+     */
+    private void startMachineMove() {
+        CompletableFuture<Board> future = board.machineMoveAsync(
+                MACHINE_MOVES);
+        pending = future;
+        future.whenComplete((next, failure) -> SwingUtilities.invokeLater(
+                () -> finishMachineMove(future, next, failure)));
+    }
+
+    /**
+     * Takes over the result of a machine move, unless it has been replaced
+     * or cancelled by the grid in the meantime. If the move failed, timed
+     * out or got cancelled elsewhere, the user is told and may click to let
+     * the bot try again, or undo.
+     *
+     * @param future The future of the machine move.
+     * @param next The board after the machine move, {@code null} if failed.
+     * @param failure The cause of the failure, {@code null} if none.
+     */
+    private void finishMachineMove(CompletableFuture<Board> future,
+            Board next, Throwable failure) {
+        if (future != pending) {
+            return;
+        }
+        pending = null;
+        if (failure != null) {
             allowedToListen = true;
+            update();
+            createMessage(DialogType.MACHINE_MOVE_FAILED);
+            return;
         }
+        history.add(next);
+        board = next;
+        update();
+
+        // Checks race condition after machine move.
+        checkAfterMachineMove();
     }
 
     /**
-     * Kills a running MachineMoveThread.
+     * Cancels a running machine move and stops the bot from pondering. The
+     * search ends within a few milliseconds and its result is dropped.
      */
-    @SuppressWarnings("deprecation")
-    public void killThread() {
-        if (thread != null) {
-            thread.stop();
+    public void cancelMachineMove() {
+        if (pending != null) {
+            CompletableFuture<Board> future = pending;
+            pending = null;
+            future.cancel(false);
+        }
+        if (board instanceof BitBoardReversi) {
+            ((BitBoardReversi) board).stopPondering();
         }
         allowedToListen = true;
     }
@@ -348,24 +512,4 @@ public class Grid extends JPanel {
             }
         }
     }
-
-    /**
-     * This class provides the implementation for a machine move in a separate
-     * Thread.
-     */
-    private class MachineMoveThread extends Thread {
-
-        /**
-         * Execute a machine move in a separate Thread.
-         */
-        @Override
-        public void run() {
-            board = board.machineMove();
-            SwingUtilities.invokeLater(Grid.this::update);
-
-            // Checks race condition after machine move.
-            checkAfterMachineMove();
-        }
-
-    }
 }
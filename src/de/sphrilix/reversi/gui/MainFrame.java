@@ -5,8 +5,10 @@ import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.border.EmptyBorder;
 import java.awt.BorderLayout;
@@ -16,6 +18,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
 
 /**
  * This class provides the implementation of frame for a gui for Reversi.
@@ -30,7 +33,8 @@ public final class MainFrame extends JFrame {
     /**
      * Array of the allowed levels
      */
-    private static final Integer[] ALLOWED_LEVELS = {1, 2, 3, 4, 5};
+    private static final Integer[] ALLOWED_LEVELS = {1, 2, 3, 4, 5, 6, 7, 8,
+            9, 10};
 
     /**
      * Standard size of a border.
@@ -47,6 +51,11 @@ public final class MainFrame extends JFrame {
      */
     private static JButton undo;
 
+    /**
+     * Redo button of the MainFrame
+     */
+    private static JButton redo;
+
     /**
      * Counter for the human Tiles
      */
@@ -177,7 +186,7 @@ public final class MainFrame extends JFrame {
             @Override
             public void actionPerformed(ActionEvent e) {
                 dispose();
-                grid.killThread();
+                grid.cancelMachineMove();
             }
         });
 
@@ -208,16 +217,89 @@ public final class MainFrame extends JFrame {
         undo.setMnemonic(KeyEvent.VK_U);
         undo.setEnabled(false);
 
+        // Create the redo Button and set the behaviour if clicked.
+        redo = new JButton("REDO");
+        redo.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                grid.redo();
+            }
+        });
+
+        // Add "Alt + R" as an shortcut for redoing the latest undone move.
+        redo.setMnemonic(KeyEvent.VK_R);
+        redo.setEnabled(false);
+
+        // Create the save Button and set the behaviour if clicked.
+        JButton save = new JButton("SAVE");
+        save.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveGame();
+            }
+        });
+
+        // Add "Alt + A" as an shortcut for saving the game.
+        save.setMnemonic(KeyEvent.VK_A);
+
+        // Create the load Button and set the behaviour if clicked.
+        JButton load = new JButton("LOAD");
+        load.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadGame();
+            }
+        });
+
+        // Add "Alt + L" as an shortcut for loading a game.
+        load.setMnemonic(KeyEvent.VK_L);
+
         // Add them all to the JPanel.
         controlButtons.add(level);
         controlButtons.add(newGame);
         controlButtons.add(switchStarted);
         controlButtons.add(undo);
+        controlButtons.add(redo);
+        controlButtons.add(save);
+        controlButtons.add(load);
         controlButtons.add(quit);
 
         return controlButtons;
     }
 
+    /**
+     * Lets the user choose a file and saves the game to it.
+     */
+    private void saveGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                grid.save(chooser.getSelectedFile().toPath());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Saving failed! \n"
+                        + e.getMessage(), "Save Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Lets the user choose a saved game and resumes it.
+     */
+    private void loadGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                grid.load(chooser.getSelectedFile().toPath());
+                level.setSelectedItem(grid.getLevel());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Loading failed! \n"
+                        + e.getMessage(), "Load Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
     /**
      * Creates the vertical coordinate axis, using the BoxLayout.
      *
@@ -260,6 +342,15 @@ public final class MainFrame extends JFrame {
         return undo;
     }
 
+    /**
+     * Getter for the redo button.
+     *
+     * @return Returns the redo button.
+     */
+    public JButton getRedo() {
+        return redo;
+    }
+
     /**
      * Getter for the counter of the human Tiles.
      *
@@ -0,0 +1,189 @@
+package de.sphrilix.reversi.model;
+
+/**
+ * This class provides the move generation on bitboards. A bitboard is a
+ * {@code long} where bit {@code row * Board.SIZE + col} stands for the slot
+ * at the given coordinates. All 8 directions are handled in parallel for the
+ * whole board by shifting the bitboards and masking out the bits which
+ * wrapped around a border.
+ */
+public final class BitBoards {
+
+    /**
+     * Bitboard of all slots except those in the first column.
+     */
+    private static final long NOT_FIRST_COL = 0xFEFEFEFEFEFEFEFEL;
+
+    /**
+     * Bitboard of all slots except those in the last column.
+     */
+    private static final long NOT_LAST_COL = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Shift amounts of the directions east, south east, south and south
+     * west. Shifting right by the same amount gives the opposite direction.
+     */
+    private static final int[] SHIFTS = {1, 9, 8, 7};
+
+    /**
+     * Masks to be applied after a left shift by the corresponding amount of
+     * {@link #SHIFTS}.
+     */
+    private static final long[] LEFT_MASKS = {NOT_FIRST_COL, NOT_FIRST_COL,
+            -1L, NOT_LAST_COL};
+
+    /**
+     * Masks to be applied after a right shift by the corresponding amount of
+     * {@link #SHIFTS}.
+     */
+    private static final long[] RIGHT_MASKS = {NOT_LAST_COL, NOT_LAST_COL,
+            -1L, NOT_FIRST_COL};
+
+    /**
+     * Bitboards of the slots adjacent to every slot, indexed by square.
+     */
+    private static final long[] NEIGHBOURS = new long[Board.SIZE * Board.SIZE];
+
+    static {
+        for (int square = 0; square < NEIGHBOURS.length; square++) {
+            long placed = 1L << square;
+            for (int i = 0; i < SHIFTS.length; i++) {
+                NEIGHBOURS[square] |= (placed << SHIFTS[i]) & LEFT_MASKS[i];
+                NEIGHBOURS[square] |= (placed >>> SHIFTS[i]) & RIGHT_MASKS[i];
+            }
+        }
+    }
+
+    /**
+     * Utility class, no instances.
+     */
+    private BitBoards() {
+    }
+
+    /**
+     * Calculates the bit of the slot at the given coordinates.
+     *
+     * @param row The row of the slot, starting at 0.
+     * @param col The column of the slot, starting at 0.
+     * @return Returns a bitboard with only the given slot set.
+     */
+    public static long bit(int row, int col) {
+        return 1L << (row * Board.SIZE + col);
+    }
+
+    /**
+     * Calculates all slots where the player owning {@code own} can place a
+     * tile, i.e., all empty slots from where at least one line of enemy
+     * tiles is enclosed by an own tile.
+     *
+     * @param own The bitboard of the player to move.
+     * @param enemy The bitboard of the enemy.
+     * @return Returns the bitboard of all possible moves.
+     */
+    public static long legalMoves(long own, long enemy) {
+        long empty = ~(own | enemy);
+        long moves = 0L;
+        for (int i = 0; i < SHIFTS.length; i++) {
+            int shift = SHIFTS[i];
+
+            // Collect the enemy lines adjacent to own tiles, up to 6 long.
+            long leftEnemy = enemy & LEFT_MASKS[i];
+            long left = (own << shift) & leftEnemy;
+            left |= (left << shift) & leftEnemy;
+            left |= (left << shift) & leftEnemy;
+            left |= (left << shift) & leftEnemy;
+            left |= (left << shift) & leftEnemy;
+            left |= (left << shift) & leftEnemy;
+            moves |= (left << shift) & LEFT_MASKS[i] & empty;
+
+            long rightEnemy = enemy & RIGHT_MASKS[i];
+            long right = (own >>> shift) & rightEnemy;
+            right |= (right >>> shift) & rightEnemy;
+            right |= (right >>> shift) & rightEnemy;
+            right |= (right >>> shift) & rightEnemy;
+            right |= (right >>> shift) & rightEnemy;
+            right |= (right >>> shift) & rightEnemy;
+            moves |= (right >>> shift) & RIGHT_MASKS[i] & empty;
+        }
+        return moves;
+    }
+
+    /**
+     * Calculates the enemy tiles which get flipped if the player owning
+     * {@code own} places a tile on the given slot.
+     *
+     * @param own The bitboard of the player to move.
+     * @param enemy The bitboard of the enemy.
+     * @param square The index of the slot, i.e., {@code row * SIZE + col}.
+     * @return Returns the bitboard of the flipped tiles, which is empty if
+     *         the move is not possible.
+     */
+    public static long flips(long own, long enemy, int square) {
+        long placed = 1L << square;
+        long flipped = 0L;
+        for (int i = 0; i < SHIFTS.length; i++) {
+            int shift = SHIFTS[i];
+
+            long line = 0L;
+            long cur = (placed << shift) & LEFT_MASKS[i];
+            while ((cur & enemy) != 0) {
+                line |= cur;
+                cur = (cur << shift) & LEFT_MASKS[i];
+            }
+            if ((cur & own) != 0) {
+                flipped |= line;
+            }
+
+            line = 0L;
+            cur = (placed >>> shift) & RIGHT_MASKS[i];
+            while ((cur & enemy) != 0) {
+                line |= cur;
+                cur = (cur >>> shift) & RIGHT_MASKS[i];
+            }
+            if ((cur & own) != 0) {
+                flipped |= line;
+            }
+        }
+        return flipped;
+    }
+
+    /**
+     * Counts for all given tiles the empty slots around them. An empty slot
+     * is counted once for every tile it is adjacent to.
+     *
+     * @param tiles The bitboard of the tiles.
+     * @param empty The bitboard of the empty slots.
+     * @return Returns the number of free fields around the tiles.
+     */
+    public static int emptyNeighbours(long tiles, long empty) {
+        int count = 0;
+        for (int i = 0; i < SHIFTS.length; i++) {
+            count += Long.bitCount((tiles << SHIFTS[i]) & LEFT_MASKS[i]
+                    & empty);
+            count += Long.bitCount((tiles >>> SHIFTS[i]) & RIGHT_MASKS[i]
+                    & empty);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the slots adjacent to the given slot.
+     *
+     * @param square The index of the slot, i.e., {@code row * SIZE + col}.
+     * @return Returns the bitboard of the up to 8 neighbours.
+     */
+    public static long neighbours(int square) {
+        return NEIGHBOURS[square];
+    }
+
+    /**
+     * Counts the possible moves of the player owning {@code own}.
+     *
+     * @param own The bitboard of the player to move.
+     * @param enemy The bitboard of the enemy.
+     * @return Returns the number of possible moves.
+     */
+    public static int mobility(long own, long enemy) {
+        return Long.bitCount(legalMoves(own, enemy));
+    }
+}
@@ -1,5 +1,8 @@
 package de.sphrilix.reversi.model;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * Interface for a Reversi game, also known as Othello.
  *
@@ -57,6 +60,22 @@ public interface Board extends Cloneable {
      */
     Board machineMove();
 
+    /**
+     * Executes a machine move on the given executor, see
+     * {@link #machineMove()}. The returned future can be given a timeout by
+     * {@link CompletableFuture#orTimeout}. This implementation cannot stop a
+     * running search when the future gets cancelled or times out, it only
+     * drops the result.
+     *
+     * @param executor The executor to search on.
+     * @return A future of the new board with the move executed. It completes
+     *         exceptionally with {@link IllegalMoveExceptions} if the game
+     *         is already over, or it is not the machine's turn.
+     */
+    default CompletableFuture<Board> machineMoveAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(this::machineMove, executor);
+    }
+
     /**
      * Sets the skill level of the machine.
      *
@@ -105,6 +105,18 @@ public class Reversi implements Board {
         return startPosition;
     }
 
+    /**
+     * Gets the points of the given field, which the bot uses to score the
+     * tiles on the Board.
+     *
+     * @param row The row of the field, starting at 0.
+     * @param col The column of the field, starting at 0.
+     * @return Returns the points of the field.
+     */
+    public static int getPointsOfField(int row, int col) {
+        return pointsOfEachField[row][col];
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -169,20 +181,9 @@ public class Reversi implements Board {
     private Player calculateNext(Player player) {
         assert player != null : "Player must not be null!";
 
-        // Normally enemy gets next move.
+        // Normally enemy gets next move, if not he has to miss.
         Player next = getEnemy(player);
-
-        // Check if next has a possible move.
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (possibleMove(i, j, next)) {
-                    return next;
-                }
-            }
-        }
-
-        // If next has no possible move, so he has to miss.
-        return player;
+        return legalMoves(next) != 0 ? next : player;
     }
 
     /**
@@ -282,6 +283,26 @@ public class Reversi implements Board {
         return possibleMoves;
     }
 
+    /**
+     * Executes a move of the Player who is next, no matter if human or
+     * machine, on a copy of this game instance, e.g., to walk the game tree
+     * with the same move generation as the bot, like perft does.
+     *
+     * @param row The row of the move, starting at 0.
+     * @param col The column of the move, starting at 0.
+     * @return Returns the game instance after the move, or {@code null} if
+     *         the move is not possible.
+     */
+    public Reversi play(int row, int col) {
+        if (!possibleMove(row, col, next)) {
+            return null;
+        }
+        Reversi b = this.clone();
+        b.flip(row, col, next);
+        b.next = b.calculateNext(next);
+        return b;
+    }
+
     /**
      * Calculates if a given move is a possible move for a given Player
      *
@@ -292,8 +313,8 @@ public class Reversi implements Board {
      */
     private boolean possibleMove(int row, int col, Player player) {
         assert player != null : "Player must not be null!";
-        assert row < SIZE && row > 0 && col < 8 && col > 0 : "Move not on "
-                + "board!";
+        assert row < SIZE && row >= 0 && col < SIZE && col >= 0 : "Move not "
+                + "on board!";
 
         // Field where set must be empty.
         if (!(getSlot(row, col) == null)) {
@@ -338,6 +359,39 @@ public class Reversi implements Board {
         return false;
     }
 
+    /**
+     * Calculates the bitboard of all possible moves of the given Player, see
+     * {@link BitBoards}. Cheaper than {@link #possibleMoves(Player)} if only
+     * the existence or the number of moves is needed.
+     *
+     * @param player Player who's possible moves gets calculated.
+     * @return Returns the bitboard of the possible moves.
+     */
+    private long legalMoves(Player player) {
+        assert player != null : "Player must not be null!";
+        return BitBoards.legalMoves(tilesOf(player),
+                tilesOf(getEnemy(player)));
+    }
+
+    /**
+     * Calculates the bitboard of the tiles of the given Player.
+     *
+     * @param player Player who's tiles are requested.
+     * @return Returns the bitboard of the tiles.
+     */
+    private long tilesOf(Player player) {
+        char c = player == Player.HUMAN ? 'X' : 'O';
+        long tiles = 0L;
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                if (board[i][j].getC() == c) {
+                    tiles |= BitBoards.bit(i, j);
+                }
+            }
+        }
+        return tiles;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -356,8 +410,8 @@ public class Reversi implements Board {
      */
     @Override
     public boolean gameOver() {
-        return possibleMoves(Player.HUMAN).size() < 1
-                && possibleMoves(Player.MACHINE).size() < 1;
+        return legalMoves(Player.HUMAN) == 0
+                && legalMoves(Player.MACHINE) == 0;
     }
 
     /**
@@ -498,8 +552,8 @@ public class Reversi implements Board {
      * @return Return scoreM of the actual instance.
      */
     private double scoreM() {
-        int mPlayer = possibleMoves(Player.MACHINE).size();
-        int mEnemy = possibleMoves(Player.HUMAN).size();
+        int mPlayer = Long.bitCount(legalMoves(Player.MACHINE));
+        int mEnemy = Long.bitCount(legalMoves(Player.HUMAN));
         return (64.0 / occupiedFields()) * (3.0 * mPlayer - 4.0 * mEnemy);
     }
 
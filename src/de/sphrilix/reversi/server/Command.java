@@ -0,0 +1,56 @@
+package de.sphrilix.reversi.server;
+
+/**
+ * Requests of the wire protocol of the {@link GameServer}. A request is one
+ * line of ASCII text: the name of the command and its arguments, separated
+ * by spaces. Every request gets answered with one line:
+ * {@code OK <id> <next> <slots>} with the state of the game, {@code BUSY}
+ * if the engine is overloaded and the request may be repeated later, or
+ * {@code ERR <message>}. {@code <next>} is {@code H} or {@code M} for the
+ * Player who is next and {@code -} if the game is over. {@code <slots>}
+ * holds the 64 slots in rows from top to bottom, {@code X} for a tile of
+ * the human, {@code O} for a tile of the machine and {@code .} for an empty
+ * one.
+ */
+public enum Command {
+
+    /**
+     * {@code NEW [H|M] [level]}: creates a session with a new game, started
+     * by the human unless given otherwise.
+     */
+    NEW,
+
+    /**
+     * {@code MOVE <id> <row> <col>}: executes a move of the human, rows and
+     * columns start with 1.
+     */
+    MOVE,
+
+    /**
+     * {@code MACHINE <id>}: executes a move of the machine and answers once
+     * it is done.
+     */
+    MACHINE,
+
+    /**
+     * {@code UNDO <id>}: takes back the latest move of the human and the
+     * moves of the machine after it.
+     */
+    UNDO,
+
+    /**
+     * {@code REDO <id>}: makes again the latest move of the human taken back
+     * and the moves of the machine after it.
+     */
+    REDO,
+
+    /**
+     * {@code STATE <id>}: answers the state of the game.
+     */
+    STATE,
+
+    /**
+     * {@code CLOSE <id>}: removes the session, answered by {@code OK <id>}.
+     */
+    CLOSE
+}
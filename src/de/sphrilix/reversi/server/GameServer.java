@@ -0,0 +1,517 @@
+package de.sphrilix.reversi.server;
+
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.IllegalMoveExceptions;
+import de.sphrilix.reversi.model.Player;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class runs games against the bot for many clients at once, without
+ * GUI. It listens on the loopback interface for TCP connections, which
+ * send requests of the line protocol described at {@link Command}. Every
+ * connection gets a thread of its own, a virtual one if available, which
+ * reads the requests and answers them in order. The searches of the
+ * machine moves run on a pool with a fixed number of threads: they wait in
+ * the order of their arrival, and if too many are waiting, further ones
+ * are answered with {@code BUSY} instead of piling up. Sessions which have
+ * not been used for a while get removed by a background thread once most
+ * of the allowed sessions exist; a request finding no free slot is
+ * answered with {@code BUSY} as well.
+ *
+ * Usage: {@code GameServer [port] [engineThreads] [queueCapacity]
+ * [maxSessions] [snapshots]}, where idle sessions get moved to the
+ * directory of snapshots instead of being dropped.
+ */
+public final class GameServer implements AutoCloseable {
+
+    /**
+     * Standard port of the server.
+     */
+    public static final int STANDARD_PORT = 7777;
+
+    /**
+     * Standard level of the bot of new sessions.
+     */
+    private static final int STANDARD_LEVEL = 3;
+
+    /**
+     * Time after which an unused session may be dropped in milliseconds.
+     */
+    private static final long IDLE_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Time between two checks for idle sessions in milliseconds.
+     */
+    private static final long SWEEP_MILLIS = 1000;
+
+    /**
+     * Share of the maximum number of sessions from which idle sessions get
+     * removed, so requests rarely find no free slot.
+     */
+    private static final double SWEEP_LOAD = 0.9;
+
+    /**
+     * Sessions of the clients.
+     */
+    private final SessionRegistry registry;
+
+    /**
+     * Pool of the searches.
+     */
+    private final ThreadPoolExecutor enginePool;
+
+    /**
+     * Threads of the connections.
+     */
+    private final ExecutorService connections;
+
+    /**
+     * Thread removing idle sessions in the background.
+     */
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Whether a removal of idle sessions is already waiting on the
+     * sweeper.
+     */
+    private final AtomicBoolean sweepRequested = new AtomicBoolean();
+
+    /**
+     * Socket accepting the connections, {@code null} if not started.
+     */
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Time a machine move may take in milliseconds, 0 for no limit.
+     */
+    private volatile long moveTimeoutMillis;
+
+    /**
+     * Number of requests rejected because the engine was overloaded.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a new server, which is not started yet.
+     *
+     * @param engineThreads The number of threads of the searches.
+     * @param queueCapacity The maximum number of waiting searches.
+     * @param maxSessions The maximum number of sessions at once.
+     */
+    public GameServer(int engineThreads, int queueCapacity,
+            int maxSessions) {
+        registry = new SessionRegistry(maxSessions);
+        enginePool = Threads.newBoundedPool("engine", engineThreads,
+                queueCapacity);
+        connections = Threads.newThreadPerTaskExecutor("connection");
+        sweeper = Threads.newBackgroundExecutor("sweeper");
+    }
+
+    /**
+     * Starts listening on the given port of the loopback interface.
+     *
+     * @param port The port, 0 for any free one.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void start(int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Server already started!");
+        }
+        serverSocket = new ServerSocket(port, 1024,
+                InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        sweeper.scheduleWithFixedDelay(() -> {
+            if (registry.size() >= SWEEP_LOAD * registry.getMaxSessions()) {
+                registry.removeIdle(IDLE_MILLIS);
+            }
+        }, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Getter for the port.
+     *
+     * @return Returns the port the server listens on, -1 if not started.
+     */
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket != null ? socket.getLocalPort() : -1;
+    }
+
+    /**
+     * Sets the time a machine move may take. A search which takes longer
+     * gets cancelled and the request answered with an error.
+     *
+     * @param millis The time in milliseconds, 0 for no limit.
+     */
+    public void setMoveTimeout(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Timeout must not be "
+                    + "negative!");
+        }
+        moveTimeoutMillis = millis;
+    }
+
+    /**
+     * Getter for the sessions.
+     *
+     * @return Returns the registry of the sessions.
+     */
+    public SessionRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Getter for the number of rejected requests.
+     *
+     * @return Returns the number of requests answered with {@code BUSY}.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Answers a request of the line protocol. Blocks until a machine move
+     * is done. A machine move cancelled meanwhile, e.g., since its session
+     * got closed by another connection, is answered with
+     * {@code ERR cancelled}.
+     *
+     * @param request The request without line break.
+     * @return Returns the answer without line break.
+     * @throws CancellationException If the thread got interrupted while
+     *         waiting for a machine move, e.g., since the server is closed.
+     */
+    public String handle(String request) {
+        String[] words = request.trim().split("\\s+");
+        try {
+            Command command = Command.valueOf(words[0].toUpperCase());
+            if (command == Command.NEW) {
+                return create(words);
+            }
+            long id = Long.parseLong(argument(words, 1));
+            while (true) {
+                try {
+                    return execute(command, id, words);
+                } catch (SessionEvictedException e) {
+
+                    // Moved to disk meanwhile, the next try resumes it.
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return "BUSY";
+        } catch (CancellationException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            return "ERR cancelled";
+        } catch (IllegalArgumentException | IllegalMoveExceptions
+                | TimeoutException e) {
+            return "ERR " + (e.getMessage() != null ? e.getMessage()
+                    : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Executes a request on an existing session.
+     *
+     * @param command The command of the request, not {@link Command#NEW}.
+     * @param id The key of the session.
+     * @param words The words of the request.
+     * @return Returns the answer.
+     * @throws TimeoutException If a machine move takes too long.
+     * @throws SessionEvictedException If the session got evicted after it
+     *         was looked up.
+     */
+    private String execute(Command command, long id, String[] words)
+            throws TimeoutException {
+        Session session = session(id);
+        if (session == null) {
+            return "ERR unknown session " + id;
+        }
+        switch (command) {
+            case MOVE:
+                if (session.move(Integer.parseInt(argument(words, 2)),
+                        Integer.parseInt(argument(words, 3))) == null) {
+                    return "ERR illegal move";
+                }
+                break;
+            case MACHINE:
+                machineMove(session);
+                break;
+            case UNDO:
+                session.undo();
+                break;
+            case REDO:
+                session.redo();
+                break;
+            case STATE:
+                break;
+            case CLOSE:
+                registry.remove(id);
+                return "OK " + id;
+            default:
+                throw new IllegalStateException();
+        }
+        return state(session);
+    }
+
+    /**
+     * Gets a session, resuming it from its snapshot if needed. If the
+     * maximum number of sessions is reached, idle ones get removed in the
+     * background, so a later request may find a free slot.
+     *
+     * @param id The key of the session.
+     * @return Returns the session, {@code null} if there is none.
+     * @throws RejectedExecutionException If the session cannot be resumed
+     *         since the maximum number of sessions is reached.
+     */
+    private Session session(long id) {
+        try {
+            return registry.get(id);
+        } catch (RejectedExecutionException e) {
+            requestSweep();
+            throw e;
+        }
+    }
+
+    /**
+     * Lets the sweeper remove idle sessions soon, unless it is about to
+     * anyway. The scan and the snapshots never delay a request.
+     */
+    private void requestSweep() {
+        if (sweepRequested.compareAndSet(false, true)) {
+            try {
+                sweeper.execute(() -> {
+                    sweepRequested.set(false);
+                    registry.removeIdle(IDLE_MILLIS);
+                });
+            } catch (RejectedExecutionException e) {
+
+                // Closed.
+                sweepRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Stops listening, closes all connections and cancels all searches.
+     */
+    @Override
+    public void close() {
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+
+                // Closed anyway.
+            }
+        }
+        connections.shutdownNow();
+        enginePool.shutdownNow();
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Answers a request to create a session.
+     *
+     * @param words The words of the request.
+     * @return Returns the answer.
+     */
+    private String create(String[] words) {
+        Player started = Player.HUMAN;
+        if (words.length > 1 && words[1].equalsIgnoreCase("M")) {
+            started = Player.MACHINE;
+        } else if (words.length > 1 && !words[1].equalsIgnoreCase("H")) {
+            throw new IllegalArgumentException("Unknown player "
+                    + words[1]);
+        }
+        int level = words.length > 2 ? Integer.parseInt(words[2])
+                : STANDARD_LEVEL;
+        Session session = registry.create(started, level);
+        if (session == null) {
+            requestSweep();
+            rejected.incrementAndGet();
+            return "BUSY";
+        }
+        return state(session);
+    }
+
+    /**
+     * Executes a machine move of a session and waits until it is done.
+     *
+     * @param session The session.
+     * @throws TimeoutException If the move takes too long.
+     * @throws CancellationException If the move got cancelled, or the
+     *         thread got interrupted while waiting; its interrupt flag is
+     *         then set.
+     */
+    private void machineMove(Session session) throws TimeoutException {
+        long timeout = moveTimeoutMillis;
+        try {
+            if (timeout > 0) {
+                session.machineMove(enginePool)
+                        .orTimeout(timeout, TimeUnit.MILLISECONDS).get();
+            } else {
+                session.machineMove(enginePool).get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw (TimeoutException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            session.cancel();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Server closed");
+        }
+    }
+
+    /**
+     * Encodes the state of the game of a session.
+     *
+     * @param session The session.
+     * @return Returns the answer with the state.
+     */
+    private static String state(Session session) {
+        Board board = session.getBoard();
+        StringBuilder sb = new StringBuilder("OK ");
+        sb.append(session.getId()).append(' ');
+        if (board.gameOver()) {
+            sb.append('-');
+        } else {
+            sb.append(board.next() == Player.HUMAN ? 'H' : 'M');
+        }
+        sb.append(' ');
+        for (int i = 0; i < Board.SIZE; i++) {
+            for (int j = 0; j < Board.SIZE; j++) {
+                Player slot = board.getSlot(i, j);
+                if (slot == Player.HUMAN) {
+                    sb.append('X');
+                } else if (slot == Player.MACHINE) {
+                    sb.append('O');
+                } else {
+                    sb.append('.');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets an argument of a request.
+     *
+     * @param words The words of the request.
+     * @param index The index of the argument.
+     * @return Returns the argument.
+     * @throws IllegalArgumentException If the argument is missing.
+     */
+    private static String argument(String[] words, int index) {
+        if (index >= words.length) {
+            throw new IllegalArgumentException("Missing argument");
+        }
+        return words[index];
+    }
+
+    /**
+     * Accepts connections until the server gets closed.
+     */
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException | RejectedExecutionException e) {
+
+                // Closed, or the connection got lost before being served.
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of a connection until it gets closed.
+     *
+     * @param socket The socket of the connection.
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        s.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            s.setTcpNoDelay(true);
+            String request;
+            while ((request = in.readLine()) != null) {
+                String answer;
+                try {
+                    answer = handle(request);
+                } catch (CancellationException e) {
+                    return;
+                }
+                out.write(answer);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+
+            // The client has gone.
+        }
+    }
+
+    /**
+     * Runs a server until the process gets killed.
+     *
+     * @param args The port, the number of threads of the searches, the
+     *        maximum number of waiting searches, the maximum number of
+     *        sessions and the directory of snapshots, all optional.
+     * @throws IOException If the port cannot be bound or the directory
+     *         cannot be read.
+     * @throws InterruptedException If interrupted while running.
+     */
+    public static void main(String[] args) throws IOException,
+            InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : STANDARD_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2])
+                : 1024 * threads;
+        int maxSessions = args.length > 3 ? Integer.parseInt(args[3])
+                : 100_000;
+        GameServer server = new GameServer(threads, queueCapacity,
+                maxSessions);
+        if (args.length > 4) {
+            server.getRegistry().setSnapshotDirectory(Paths.get(args[4]));
+        }
+        server.start(port);
+        System.out.printf("Listening on port %d with %d engine threads, "
+                + "virtual threads %s%n", server.getPort(), threads,
+                Threads.virtualThreadsAvailable() ? "on" : "off");
+        Thread.currentThread().join();
+    }
+}
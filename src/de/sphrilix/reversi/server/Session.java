@@ -0,0 +1,312 @@
+package de.sphrilix.reversi.server;
+
+import de.sphrilix.reversi.engine.BitBoardReversi;
+import de.sphrilix.reversi.engine.Engine;
+import de.sphrilix.reversi.engine.GameHistory;
+import de.sphrilix.reversi.engine.GameSnapshot;
+import de.sphrilix.reversi.engine.IncrementalEvaluator;
+import de.sphrilix.reversi.model.Board;
+import de.sphrilix.reversi.model.IllegalMoveExceptions;
+import de.sphrilix.reversi.model.Player;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * This class holds one game of a client of the {@link GameServer}. Like the
+ * grid of the GUI it keeps the moves in a {@link GameHistory}, so moves can
+ * be taken back and made again. A session runs at most one
+ * machine move at a time; while it runs, the session rejects all other
+ * changes. A session keeps no bot, only the moves of its game: every thread
+ * running machine moves has an {@link Engine} of its own, which searches
+ * for all sessions, so thousands of sessions fit into memory. The engines
+ * search without transposition table and do not solve the end of the game
+ * exactly, so no machine move takes much longer than its level demands and
+ * holds up the moves of the other sessions. An idle session can be moved
+ * to disk as a {@link GameSnapshot} and resumed from it, see
+ * {@link SessionRegistry#setSnapshotDirectory(Path)}.
+ */
+public final class Session {
+
+    /**
+     * Engine of every thread running machine moves of sessions.
+     */
+    private static final ThreadLocal<Engine> ENGINES =
+            ThreadLocal.withInitial(Session::createEngine);
+
+    /**
+     * Key of the session in its registry.
+     */
+    private final long id;
+
+    /**
+     * Actual board of the game.
+     */
+    private BitBoardReversi board;
+
+    /**
+     * Moves of the game.
+     */
+    private final GameHistory history;
+
+    /**
+     * Result of the running machine move, {@code null} if none.
+     */
+    private CompletableFuture<Board> pending;
+
+    /**
+     * Whether the game has been moved to a snapshot, so the session must
+     * not change any more.
+     */
+    private boolean evicted;
+
+    /**
+     * Time of the latest request in milliseconds, see
+     * {@link System#currentTimeMillis()}.
+     */
+    private volatile long lastAccess;
+
+    /**
+     * Creates a new session with a new game.
+     *
+     * @param id The key of the session.
+     * @param started The player who starts the game.
+     * @param level The level of the bot.
+     */
+    Session(long id, Player started, int level) {
+        BitBoardReversi game = createBoard(started);
+        game.setLevel(level);
+        this.id = id;
+        history = new GameHistory(game);
+        board = game;
+        touch();
+    }
+
+    /**
+     * Creates a session which resumes the game of a snapshot.
+     *
+     * @param id The key of the session.
+     * @param snapshot The snapshot of the game.
+     * @throws IOException If the snapshot is corrupt.
+     */
+    Session(long id, GameSnapshot snapshot) throws IOException {
+        this.id = id;
+        history = snapshot.restore(createBoard(snapshot.getStarted()));
+        board = history.getBoard();
+        touch();
+    }
+
+    /**
+     * Getter for the key.
+     *
+     * @return Returns the key of the session in its registry.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Getter for the actual board.
+     *
+     * @return Returns the board, which must not be changed.
+     */
+    public synchronized Board getBoard() {
+        touch();
+        finishMachineMove();
+        return board;
+    }
+
+    /**
+     * Executes a move of the human.
+     *
+     * @param row The row of the move, starting with 1.
+     * @param col The column of the move, starting with 1.
+     * @return Returns the board after the move, {@code null} if the move is
+     *         not valid.
+     * @throws IllegalMoveExceptions If the game is over, it is not the
+     *         human's turn or a machine move is running.
+     * @throws IllegalArgumentException If the slot is not on the grid.
+     * @throws SessionEvictedException If the session has been evicted.
+     */
+    public synchronized Board move(int row, int col) {
+        touch();
+        checkIdle();
+        Board next = board.move(row, col);
+        if (next != null) {
+            history.add(next);
+            board = history.getBoard();
+        }
+        return next;
+    }
+
+    /**
+     * Starts a move of the machine on the given executor, searched by the
+     * engine of the thread running it. The board of the session gets
+     * replaced once the move is done.
+     *
+     * @param executor The executor to search on.
+     * @return Returns a future of the board after the move.
+     * @throws IllegalMoveExceptions If the game is over, it is not the
+     *         machine's turn or a machine move is running.
+     * @throws java.util.concurrent.RejectedExecutionException If the
+     *         executor does not accept the search.
+     * @throws SessionEvictedException If the session has been evicted.
+     */
+    public synchronized CompletableFuture<Board> machineMove(
+            Executor executor) {
+        touch();
+        checkIdle();
+        if (board.gameOver() || board.next() != Player.MACHINE) {
+            throw new IllegalMoveExceptions();
+        }
+        CompletableFuture<Board> future = board.machineMoveAsync(executor,
+                ENGINES::get);
+        pending = future;
+        future.whenComplete((next, failure) -> finishMachineMove());
+        return future;
+    }
+
+    /**
+     * Takes back the latest move of the human, and the moves of the machine
+     * after it.
+     *
+     * @return Returns the board before the move.
+     * @throws IllegalMoveExceptions If there is no move to take back or a
+     *         machine move is running.
+     * @throws SessionEvictedException If the session has been evicted.
+     */
+    public synchronized Board undo() {
+        touch();
+        checkIdle();
+        int latest = history.previousMove(Player.HUMAN);
+        if (latest < 0) {
+            throw new IllegalMoveExceptions("No move to undo.");
+        }
+        board = history.seek(latest);
+        return board;
+    }
+
+    /**
+     * Makes again the latest move of the human taken back, and the moves of
+     * the machine after it.
+     *
+     * @return Returns the board after the moves.
+     * @throws IllegalMoveExceptions If there is no move to make again or a
+     *         machine move is running.
+     * @throws SessionEvictedException If the session has been evicted.
+     */
+    public synchronized Board redo() {
+        touch();
+        checkIdle();
+        int redone = history.nextMove(Player.HUMAN);
+        if (redone < 0) {
+            throw new IllegalMoveExceptions("No move to redo.");
+        }
+        history.seek(redone + 1);
+        int following = history.nextMove(Player.HUMAN);
+        board = history.seek(following >= 0 ? following
+                : history.getLength());
+        return board;
+    }
+
+    /**
+     * Evicts the session by saving its game to the given file, unless a
+     * machine move is running. Requests for the session wait meanwhile;
+     * once it is evicted, all of them fail with a
+     * {@link SessionEvictedException}, so no change gets lost.
+     *
+     * @param file The file of the snapshot.
+     * @return Returns true if the session is evicted, false if a machine
+     *         move is running or the session is already evicted.
+     * @throws IOException If the snapshot cannot be written; the session
+     *         stays then.
+     */
+    synchronized boolean evict(Path file) throws IOException {
+        finishMachineMove();
+        if (pending != null || evicted) {
+            return false;
+        }
+        GameSnapshot.save(history, file);
+        evicted = true;
+        return true;
+    }
+
+    /**
+     * Cancels the running machine move, if any.
+     */
+    synchronized void cancel() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * Getter for the time of the latest request.
+     *
+     * @return Returns the time in milliseconds.
+     */
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Replaces the board once the running machine move is done. Besides by
+     * the future itself this is called before the session gets read or
+     * changed, since a caller waiting for the future may be woken up before
+     * the future runs its actions.
+     */
+    private synchronized void finishMachineMove() {
+        CompletableFuture<Board> future = pending;
+        if (future != null && future.isDone()) {
+            pending = null;
+            if (!future.isCompletedExceptionally()) {
+                history.add(future.join());
+                board = history.getBoard();
+            }
+        }
+    }
+
+    /**
+     * Creates the board at the start of a game of a session, without bot.
+     *
+     * @param started The player who starts the game.
+     * @return Returns the board.
+     */
+    private static BitBoardReversi createBoard(Player started) {
+        return new BitBoardReversi(started, (Engine) null);
+    }
+
+    /**
+     * Creates the engine of a thread running machine moves.
+     *
+     * @return Returns the engine.
+     */
+    private static Engine createEngine() {
+        Engine engine = new Engine(new IncrementalEvaluator());
+        engine.setHashSize(0);
+        engine.setEndgameEmpties(0);
+        return engine;
+    }
+
+    /**
+     * Checks that the session is not evicted and no machine move is
+     * running.
+     */
+    private void checkIdle() {
+        finishMachineMove();
+        if (evicted) {
+            throw new SessionEvictedException();
+        }
+        if (pending != null) {
+            throw new IllegalMoveExceptions("Machine move running.");
+        }
+    }
+
+    /**
+     * Stores the time of a request.
+     */
+    private void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+}
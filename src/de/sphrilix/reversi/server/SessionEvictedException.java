@@ -0,0 +1,21 @@
+package de.sphrilix.reversi.server;
+
+/**
+ * This exception is thrown by a {@link Session} which has been moved to
+ * disk by its registry. The game goes on in the session the registry
+ * resumes from the snapshot, see {@link SessionRegistry#get(long)}.
+ */
+public final class SessionEvictedException extends RuntimeException {
+
+    /**
+     * Version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new exception.
+     */
+    public SessionEvictedException() {
+        super("Session evicted.");
+    }
+}
@@ -0,0 +1,362 @@
+package de.sphrilix.reversi.server;
+
+import de.sphrilix.reversi.engine.GameSnapshot;
+import de.sphrilix.reversi.model.Player;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps the sessions of the {@link GameServer} by their keys. It
+ * admits only a limited number of sessions at once, so the memory of the
+ * server stays bounded, and it drops sessions which have not been used for
+ * a while. With a directory for snapshots, idle sessions are written there
+ * instead of being dropped, and resumed on their next request, see
+ * {@link GameSnapshot}. Resumed sessions count against the maximum like
+ * new ones: every session takes a slot before it gets into the map, and
+ * gives it back once it is removed or evicted. Snapshots are read and
+ * written outside of the map, so a slow disk holds up only the requests of
+ * the session concerned. A snapshot which cannot be resumed gets renamed
+ * to end with {@code .corrupt}. All methods may be called from any thread.
+ */
+public final class SessionRegistry {
+
+    /**
+     * Ending of the names of the snapshot files, which start with the key
+     * of their session.
+     */
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /**
+     * Ending of the names of snapshot files which could not be resumed.
+     */
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    /**
+     * Sessions by their keys.
+     */
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Results of the running resumes of sessions by their keys, so every
+     * snapshot is read by one request only.
+     */
+    private final Map<Long, CompletableFuture<Session>> resuming =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Number of sessions in the map or about to be put there.
+     */
+    private final AtomicInteger live = new AtomicInteger();
+
+    /**
+     * Key of the latest session.
+     */
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Maximum number of sessions at once.
+     */
+    private final int maxSessions;
+
+    /**
+     * Directory of the snapshots of idle sessions, {@code null} if they are
+     * dropped.
+     */
+    private volatile Path snapshotDirectory;
+
+    /**
+     * Creates a new registry.
+     *
+     * @param maxSessions The maximum number of sessions at once.
+     */
+    public SessionRegistry(int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("At least one session must "
+                    + "be allowed!");
+        }
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Creates a new session with a new game.
+     *
+     * @param started The player who starts the game.
+     * @param level The level of the bot.
+     * @return Returns the session, {@code null} if the maximum number of
+     *         sessions is reached.
+     */
+    public Session create(Player started, int level) {
+        if (!reserve()) {
+            return null;
+        }
+        Session session = new Session(lastId.incrementAndGet(), started,
+                level);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Gets the session with the given key. A session with a snapshot gets
+     * resumed if the maximum number of sessions is not reached.
+     *
+     * @param id The key of the session.
+     * @return Returns the session, {@code null} if there is none.
+     * @throws RejectedExecutionException If the session has a snapshot, but
+     *         the maximum number of sessions is reached.
+     */
+    public Session get(long id) {
+        Session session = sessions.get(id);
+        if (session != null || snapshotDirectory == null) {
+            return session;
+        }
+        CompletableFuture<Session> resumed = new CompletableFuture<>();
+        CompletableFuture<Session> running = resuming.putIfAbsent(id,
+                resumed);
+        if (running != null) {
+
+            // Another request resumes the session, its result is ours.
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            session = resume(id);
+            resumed.complete(session);
+            return session;
+        } catch (RuntimeException e) {
+            resumed.completeExceptionally(e);
+            throw e;
+        } finally {
+            resuming.remove(id, resumed);
+        }
+    }
+
+    /**
+     * Sets the directory for the snapshots of idle sessions. Sessions of
+     * snapshots already in it can be resumed, e.g., after a restart.
+     *
+     * @param directory The directory, {@code null} if idle sessions get
+     *        dropped.
+     * @throws IOException If the directory cannot be created or read.
+     */
+    public void setSnapshotDirectory(Path directory) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                    directory, "*" + SNAPSHOT_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    try {
+                        long id = Long.parseLong(name.substring(0,
+                                name.length() - SNAPSHOT_SUFFIX.length()));
+                        lastId.accumulateAndGet(id, Math::max);
+                    } catch (NumberFormatException e) {
+
+                        // No snapshot of a session.
+                    }
+                }
+            }
+        }
+        snapshotDirectory = directory;
+    }
+
+    /**
+     * Removes the session with the given key and cancels its machine move.
+     *
+     * @param id The key of the session.
+     * @return Returns true if the session existed.
+     */
+    public boolean remove(long id) {
+        Session session = sessions.remove(id);
+        if (session != null) {
+            live.decrementAndGet();
+            session.cancel();
+        }
+        return session != null;
+    }
+
+    /**
+     * Removes all sessions which have not been used for the given time.
+     * With a directory for snapshots they are written there, except the
+     * ones running a machine move or which cannot be written.
+     *
+     * @param idleMillis The time in milliseconds.
+     * @return Returns the number of removed sessions.
+     */
+    public int removeIdle(long idleMillis) {
+        long limit = System.currentTimeMillis() - idleMillis;
+        Path directory = snapshotDirectory;
+        int removed = 0;
+        for (Session session : sessions.values()) {
+            if (session.getLastAccess() >= limit) {
+                continue;
+            }
+            if (directory == null) {
+                if (remove(session.getId())) {
+                    removed++;
+                }
+            } else if (evict(session, directory)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Writes the snapshot of a session and removes the session. The session
+     * is held meanwhile, so a request for it waits until the snapshot is
+     * written, then fails with a {@link SessionEvictedException} and
+     * resumes it. The map is not locked while writing, so requests for
+     * other sessions go on.
+     *
+     * @param session The session.
+     * @param directory The directory of the snapshots.
+     * @return Returns true if the session was removed.
+     */
+    private boolean evict(Session session, Path directory) {
+        long id = session.getId();
+        Path file = directory.resolve(id + SNAPSHOT_SUFFIX);
+        synchronized (session) {
+            if (sessions.get(id) != session) {
+                return false;
+            }
+            try {
+                if (!session.evict(file)) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+            if (!sessions.remove(id, session)) {
+
+                // Closed while written, nothing to resume.
+                discard(file);
+                return false;
+            }
+        }
+        live.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Takes a slot for a new or resumed session, if the maximum number of
+     * sessions is not reached.
+     *
+     * @return Returns true if a slot was taken.
+     */
+    private boolean reserve() {
+        while (true) {
+            int current = live.get();
+            if (current >= maxSessions) {
+                return false;
+            }
+            if (live.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Resumes a session from its snapshot, which gets deleted, unless the
+     * session has been resumed already. Must not run for the same key twice
+     * at once. A snapshot which cannot be read is moved aside, so it is not
+     * read again by every request for its key.
+     *
+     * @param id The key of the session.
+     * @return Returns the session, {@code null} if there is no valid
+     *         snapshot.
+     * @throws RejectedExecutionException If the maximum number of sessions
+     *         is reached.
+     */
+    private Session resume(long id) {
+        Session session = sessions.get(id);
+        Path directory = snapshotDirectory;
+        if (session != null || directory == null) {
+            return session;
+        }
+        Path file = directory.resolve(id + SNAPSHOT_SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        if (!reserve()) {
+            throw new RejectedExecutionException("Too many sessions!");
+        }
+        try {
+            session = new Session(id, GameSnapshot.read(file));
+        } catch (NoSuchFileException e) {
+            live.decrementAndGet();
+            return null;
+        } catch (IOException e) {
+            live.decrementAndGet();
+            quarantine(file, directory.resolve(id + CORRUPT_SUFFIX));
+            return null;
+        }
+        discard(file);
+        sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * Moves a snapshot which cannot be resumed aside, or deletes it if that
+     * fails.
+     *
+     * @param file The snapshot.
+     * @param target The file it gets moved to.
+     */
+    private static void quarantine(Path file, Path target) {
+        try {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            discard(file);
+        }
+    }
+
+    /**
+     * Deletes a snapshot. If that fails, it stays until the next eviction
+     * of its session replaces it.
+     *
+     * @param file The snapshot.
+     */
+    private static void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+
+            // Replaced by the next snapshot of the session.
+        }
+    }
+
+    /**
+     * Getter for the maximum number of sessions.
+     *
+     * @return Returns the maximum number of sessions at once.
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Getter for the number of sessions.
+     *
+     * @return Returns the number of sessions.
+     */
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,120 @@
+package de.sphrilix.reversi.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates the executors of the server. Blocking work, like
+ * reading a request from a connection, runs on a thread of its own per
+ * task, a virtual thread if the JVM provides them. The code is compiled
+ * against older JVMs, so virtual threads are looked up by reflection and
+ * platform threads are used instead if missing.
+ */
+public final class Threads {
+
+    /**
+     * Utility class, no instances.
+     */
+    private Threads() {
+    }
+
+    /**
+     * Checks whether the JVM provides virtual threads.
+     *
+     * @return Returns true if virtual threads are available.
+     */
+    public static boolean virtualThreadsAvailable() {
+        return virtualExecutorFactory() != null;
+    }
+
+    /**
+     * Creates an executor which runs every task on a new thread, a virtual
+     * one if available, else a daemon platform thread.
+     *
+     * @param name The name of the threads.
+     * @return Returns the executor.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        Method factory = virtualExecutorFactory();
+        if (factory != null) {
+            try {
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+
+                // Fall back to platform threads.
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(null, runnable,
+                    name + "-" + count.incrementAndGet(), 256 * 1024);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a pool with a fixed number of daemon threads for the work of
+     * the engine. Tasks wait in the order of their arrival, and if the
+     * given number of tasks is already waiting, further ones get rejected
+     * with a {@link RejectedExecutionException}.
+     *
+     * @param name The name of the threads.
+     * @param threads The number of threads.
+     * @param queueCapacity The maximum number of waiting tasks.
+     * @return Returns the pool.
+     */
+    public static ThreadPoolExecutor newBoundedPool(String name, int threads,
+            int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Threads and capacity must "
+                    + "be at least 1!");
+        }
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Creates an executor with a single daemon thread for background work,
+     * which runs tasks once or periodically.
+     *
+     * @param name The name of the thread.
+     * @return Returns the executor.
+     */
+    public static ScheduledExecutorService newBackgroundExecutor(
+            String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Looks up the factory of executors with virtual threads.
+     *
+     * @return Returns the method, {@code null} if not available.
+     */
+    private static Method virtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
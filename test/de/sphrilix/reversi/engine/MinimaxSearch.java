@@ -0,0 +1,106 @@
+package de.sphrilix.reversi.engine;
+
+import de.sphrilix.reversi.model.Player;
+import de.sphrilix.reversi.model.Reversi;
+
+/**
+ * This class provides the minimax search of the machine on a single
+ * {@link Position}, which is changed and restored in place. The scores are
+ * the same as the ones of the game tree of {@link Reversi}: a leaf gets its
+ * own score, every other node except the root gets its own score plus the
+ * best score of its children if the machine is next, else plus the worst
+ * score of its children. With an evaluator which does not accumulate only
+ * the leaves are evaluated. The tests check the searches of the engine
+ * against it.
+ */
+class MinimaxSearch {
+
+    /**
+     * Evaluator for the scores of the nodes.
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * Creates a new search.
+     *
+     * @param evaluator The evaluator for the scores of the nodes.
+     */
+    MinimaxSearch(Evaluator evaluator) {
+        if (evaluator == null) {
+            throw new IllegalArgumentException();
+        }
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Searches the best move of the Player who is next on the given position.
+     * On equal scores the move on the lower square wins, which is the first
+     * in row-major order. The position is unchanged afterwards.
+     *
+     * @param position The position to be searched, must not be over.
+     * @param depth The depth of the search, the level of the bot.
+     * @return Returns the square of the best move.
+     */
+    int bestMove(Position position, int depth) {
+        long moves = position.legalMoves();
+        if (moves == 0) {
+            throw new IllegalArgumentException("No possible move!");
+        }
+        boolean maximize = position.next() == Player.MACHINE;
+        int bestMove = -1;
+        double bestScore = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            int square = Long.numberOfTrailingZeros(moves);
+            position.makeMove(square);
+            double score = miniMax(position, depth - 1);
+            position.undoMove();
+            if (bestMove < 0 || (maximize ? score > bestScore
+                    : score < bestScore)) {
+                bestMove = square;
+                bestScore = score;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Calculates the score of the given position like the search does for
+     * the children of the root. The position is unchanged afterwards.
+     *
+     * @param position The position to be scored.
+     * @param depth The remaining depth.
+     * @return Returns the score of the position.
+     */
+    double score(Position position, int depth) {
+        return miniMax(position, depth);
+    }
+
+    /**
+     * Calculates the score of the given position.
+     *
+     * @param position The position to be scored.
+     * @param depth The remaining depth.
+     * @return Returns the score of the position.
+     */
+    private double miniMax(Position position, int depth) {
+        long moves = position.legalMoves();
+        if (depth <= 0 || moves == 0) {
+            return evaluator.evaluate(position);
+        }
+        double score = evaluator.accumulates()
+                ? evaluator.evaluate(position) : 0.0;
+        boolean maximize = position.next() == Player.MACHINE;
+        double extremeScore = maximize ? Double.NEGATIVE_INFINITY
+                : Double.POSITIVE_INFINITY;
+        for (; moves != 0; moves &= moves - 1) {
+            position.makeMove(Long.numberOfTrailingZeros(moves));
+            double childScore = miniMax(position, depth - 1);
+            position.undoMove();
+            if (maximize ? childScore > extremeScore
+                    : childScore < extremeScore) {
+                extremeScore = childScore;
+            }
+        }
+        return score + extremeScore;
+    }
+}
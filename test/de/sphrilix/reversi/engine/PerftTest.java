@@ -0,0 +1,49 @@
+package de.sphrilix.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.sphrilix.reversi.model.Player;
+import de.sphrilix.reversi.model.Reversi;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks both move generators by {@link Perft} from the start position.
+ */
+class PerftTest {
+
+    /**
+     * Leaves of the game tree from the start position by depth, starting
+     * with depth 0.
+     */
+    private static final long[] LEAVES = {1, 4, 12, 56, 244, 1396, 8200,
+        55092};
+
+    /**
+     * Depth to which the tile path is compared with the bitboard path.
+     */
+    private static final int COMPARED_DEPTH = 6;
+
+    /**
+     * The bitboard path gives the known numbers.
+     */
+    @Test
+    void bitBoardsGiveKnownLeaves() {
+        Position position = Position.start(Player.HUMAN);
+        for (int depth = 0; depth < LEAVES.length; depth++) {
+            assertEquals(LEAVES[depth], Perft.perft(position, depth),
+                    "depth " + depth);
+        }
+    }
+
+    /**
+     * The tile path gives the numbers of the bitboard path below every
+     * move.
+     */
+    @Test
+    void tilesAgreeWithBitBoards() {
+        assertArrayEquals(Perft.divide(Position.start(Player.HUMAN),
+                COMPARED_DEPTH), Perft.divide(new Reversi(Player.HUMAN),
+                COMPARED_DEPTH));
+    }
+}
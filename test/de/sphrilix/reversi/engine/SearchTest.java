@@ -0,0 +1,204 @@
+package de.sphrilix.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.sphrilix.reversi.model.Player;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the searches of the engine against the plain {@link MinimaxSearch}
+ * on the start position and on midgame and endgame positions of seeded
+ * random games, for every depth up to {@link #MAX_DEPTH}. The alpha-beta
+ * and the root split search must choose the same move as minimax. The Lazy
+ * SMP search may choose another move of the same score, since its threads
+ * share their results in any order, so the minimax score of its move is
+ * compared instead.
+ */
+class SearchTest {
+
+    /**
+     * Deepest search compared with minimax.
+     */
+    private static final int MAX_DEPTH = 5;
+
+    /**
+     * Number of threads of the parallel searches.
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Number of positions of each phase.
+     */
+    private static final int POSITIONS = 8;
+
+    /**
+     * Pool of the parallel searches.
+     */
+    private static ForkJoinPool pool;
+
+    /**
+     * Evaluator of all searches.
+     */
+    private final Evaluator evaluator = new IncrementalEvaluator();
+
+    /**
+     * Search the others are checked against.
+     */
+    private final MinimaxSearch minimax = new MinimaxSearch(evaluator);
+
+    /**
+     * Creates the pool of the parallel searches.
+     */
+    @BeforeAll
+    static void createPool() {
+        pool = ParallelSearch.createPool(THREADS);
+    }
+
+    /**
+     * Shuts the pool of the parallel searches down.
+     */
+    @AfterAll
+    static void shutDownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * The alpha-beta search chooses the move of minimax.
+     */
+    @Test
+    void alphaBetaChoosesMinimaxMove() {
+        AlphaBetaSearch search = new AlphaBetaSearch(evaluator);
+        TranspositionTable table =
+                new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+        search.setTranspositionTable(table);
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            for (Position position : positions()) {
+                table.newSearch();
+                assertEquals(minimax.bestMove(position, depth),
+                        search.bestMove(position, depth),
+                        message(position, depth));
+            }
+        }
+    }
+
+    /**
+     * The root split search chooses the move of minimax.
+     */
+    @Test
+    void rootSplitChoosesMinimaxMove() {
+        ParallelSearch search = new ParallelSearch(evaluator, pool);
+        TranspositionTable table =
+                new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+        search.setTranspositionTable(table);
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            for (Position position : positions()) {
+                table.newSearch();
+                assertEquals(minimax.bestMove(position, depth),
+                        search.bestMove(position, depth),
+                        message(position, depth));
+            }
+        }
+    }
+
+    /**
+     * The Lazy SMP search chooses a move with the score of the move of
+     * minimax.
+     */
+    @Test
+    void lazySmpChoosesMoveOfMinimaxScore() {
+        LazySmpSearch search = new LazySmpSearch(evaluator, pool, THREADS);
+        TranspositionTable table =
+                new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+        search.setTranspositionTable(table);
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            for (Position position : positions()) {
+                table.newSearch();
+                int expected = minimax.bestMove(position, depth);
+                int actual = search.bestMove(position, depth);
+                assertEquals(score(position, expected, depth),
+                        score(position, actual, depth),
+                        message(position, depth));
+            }
+        }
+    }
+
+    /**
+     * Calculates the minimax score of a move like the root of the search.
+     *
+     * @param position The position, which is unchanged afterwards.
+     * @param square The square of the move.
+     * @param depth The depth of the search.
+     * @return Returns the score of the position after the move.
+     */
+    private double score(Position position, int square, int depth) {
+        position.makeMove(square);
+        double score = minimax.score(position, depth - 1);
+        position.undoMove();
+        return score;
+    }
+
+    /**
+     * Describes a search for a failed check.
+     *
+     * @param position The searched position.
+     * @param depth The depth of the search.
+     * @return Returns the description.
+     */
+    private static String message(Position position, int depth) {
+        return String.format("depth %d, human %016x, machine %016x", depth,
+                position.getHuman(), position.getMachine());
+    }
+
+    /**
+     * Creates the positions of the checks: the start position and the
+     * positions of seeded random games at 36 and at 12 empty slots, all with
+     * the machine next.
+     *
+     * @return Returns the positions.
+     */
+    private static List<Position> positions() {
+        List<Position> positions = new ArrayList<>();
+        positions.add(Position.start(Player.MACHINE));
+        positions.addAll(randomPositions(36));
+        positions.addAll(randomPositions(12));
+        return positions;
+    }
+
+    /**
+     * Creates positions by games of random moves, which stop at the first
+     * position with at most the given number of empty slots where the
+     * machine is next. Games ending earlier are skipped.
+     *
+     * @param empties The maximum number of empty slots.
+     * @return Returns {@link #POSITIONS} positions.
+     */
+    private static List<Position> randomPositions(int empties) {
+        List<Position> positions = new ArrayList<>();
+        for (long seed = 1; positions.size() < POSITIONS; seed++) {
+            Random random = new Random(seed);
+            Position position = Position.start(Player.HUMAN);
+            while (!position.gameOver() && (position.getEmpties() > empties
+                    || position.next() != Player.MACHINE)) {
+                long moves = position.legalMoves();
+                for (int skip = random.nextInt(Long.bitCount(moves));
+                        skip > 0; skip--) {
+                    moves &= moves - 1;
+                }
+                position.makeMove(Long.numberOfTrailingZeros(moves));
+            }
+            if (!position.gameOver()) {
+
+                // Without the moves of the game, like a position of a board.
+                positions.add(new Position(position.getHuman(),
+                        position.getMachine(), Player.MACHINE));
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,99 @@
+package de.sphrilix.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.sphrilix.reversi.model.Player;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the admission, eviction and resumption of sessions.
+ */
+class SessionRegistryTest {
+
+    /**
+     * Directory of the snapshots.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * An evicted session is resumed with its game and counts against the
+     * maximum again.
+     *
+     * @throws Exception If the snapshots cannot be written.
+     */
+    @Test
+    void evictedSessionIsResumed() throws Exception {
+        SessionRegistry registry = new SessionRegistry(1);
+        registry.setSnapshotDirectory(directory);
+        Session session = registry.create(Player.HUMAN, 2);
+        assertNotNull(session.move(3, 4));
+        String board = session.getBoard().toString();
+        evictAll(registry);
+        assertEquals(0, registry.size());
+        assertThrows(SessionEvictedException.class, () -> session.undo());
+
+        Session resumed = registry.get(session.getId());
+        assertNotNull(resumed);
+        assertEquals(board, resumed.getBoard().toString());
+        assertNull(registry.create(Player.HUMAN, 2));
+    }
+
+    /**
+     * A snapshot is not resumed while the maximum number of sessions is
+     * reached, and stays for a later request.
+     *
+     * @throws Exception If the snapshots cannot be written.
+     */
+    @Test
+    void resumeIsRejectedWhenFull() throws Exception {
+        SessionRegistry registry = new SessionRegistry(1);
+        registry.setSnapshotDirectory(directory);
+        long id = registry.create(Player.HUMAN, 2).getId();
+        evictAll(registry);
+        Session other = registry.create(Player.HUMAN, 2);
+        assertThrows(RejectedExecutionException.class,
+                () -> registry.get(id));
+        assertTrue(registry.remove(other.getId()));
+        assertNotNull(registry.get(id));
+    }
+
+    /**
+     * A snapshot which cannot be read is moved aside and takes no slot.
+     *
+     * @throws Exception If the snapshot cannot be written.
+     */
+    @Test
+    void corruptSnapshotIsQuarantined() throws Exception {
+        SessionRegistry registry = new SessionRegistry(1);
+        registry.setSnapshotDirectory(directory);
+        Files.write(directory.resolve("7.snapshot"), new byte[] {1, 2, 3});
+        assertNull(registry.get(7));
+        assertFalse(Files.exists(directory.resolve("7.snapshot")));
+        assertTrue(Files.exists(directory.resolve("7.corrupt")));
+        assertNotNull(registry.create(Player.HUMAN, 2));
+    }
+
+    /**
+     * Evicts all sessions of the registry.
+     *
+     * @param registry The registry.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void evictAll(SessionRegistry registry)
+            throws InterruptedException {
+
+        // Idle for at least a millisecond.
+        Thread.sleep(2);
+        registry.removeIdle(0);
+    }
+}